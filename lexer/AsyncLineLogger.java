@@ -0,0 +1,99 @@
+package lexer;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  A LexerListener that echoes every line read as "READLINE:   line" on a
+ *  background thread; the lexer thread only drops the line into a fixed
+ *  size ring buffer so it never waits on the output stream unless the
+ *  ring is full.  The ring has a single producer, so one logger must only
+ *  be registered with one Lexer (or thread) at a time.  close() prints
+ *  whatever is still buffered.
+ */
+public class AsyncLineLogger implements LexerListener, AutoCloseable {
+  private final String[] ring;
+  private final int mask;
+  // next slot the lexer thread writes
+  private final AtomicLong head = new AtomicLong();
+  // next slot the writer thread prints
+  private final AtomicLong tail = new AtomicLong();
+  private final PrintStream out;
+  private final Thread writer;
+  private volatile boolean closed = false;
+
+  /**
+   *  Create a logger writing to System.out with room for 1024 lines
+   */
+  public AsyncLineLogger() {
+    this( System.out, 1024 );
+  }
+
+  /**
+   *  @param out is the stream the lines are echoed to
+   *  @param capacity is the number of lines buffered before the lexer
+   *  has to wait; it is rounded up to a power of 2
+   */
+  public AsyncLineLogger( PrintStream out, int capacity ) {
+    int size = Integer.highestOneBit( Math.max( 2, capacity - 1 )) << 1;
+    this.ring = new String[ size ];
+    this.mask = size - 1;
+    this.out = out;
+    writer = new Thread( this::drain, "lexer-readline-logger" );
+    writer.setDaemon( true );
+    writer.start();
+  }
+
+  @Override
+  public void lineRead( int lineNumber, CharSequence line ) {
+    long h = head.get();
+
+    // ring is full; let the writer catch up
+    while( h - tail.get() >= ring.length ) {
+      LockSupport.unpark( writer );
+      Thread.onSpinWait();
+    }
+
+    ring[ (int) h & mask ] = "READLINE:   " + line;
+    head.lazySet( h + 1 );
+    LockSupport.unpark( writer );
+  }
+
+  private void drain() {
+    while( true ) {
+      long t = tail.get();
+
+      if( t == head.get() ) {
+        if( closed && t == head.get() ) {
+          break;
+        }
+        out.flush();
+        LockSupport.parkNanos( 1_000_000L );
+        continue;
+      }
+
+      int slot = (int) t & mask;
+      out.println( ring[ slot ] );
+      ring[ slot ] = null;
+      tail.lazySet( t + 1 );
+    }
+
+    out.flush();
+  }
+
+  /**
+   *  print the lines still in the ring and stop the writer thread
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark( writer );
+
+    try {
+      writer.join();
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ *  BatchLexer lexes many source files at once for the command line:
+ *  the files named, the .x, .x.gz and .zip files under the directories
+ *  named and the files matching the globs given (e.g. "progs/**.x").
+ *  The files are lexed on a work-stealing pool with a thread per core,
+ *  largest first so a big file does not start last and hold up the run,
+ *  but the output of each file is printed whole and in the order the
+ *  files were named.  A summary of the token and byte rates ends the run.
+ *  With -recover each file is lexed to its end whatever errors it has,
+ *  and the summary counts them, so one run finds all of them.  The way
+ *  the files are read and the engine are chosen with the same flags as
+ *  for Lexer.main.
+ */
+public class BatchLexer {
+  /**
+   *  How the source files are read: into memory, mapped, streamed or
+   *  streamed with a PrefetchReader; a .gz file is never mapped
+   */
+  public enum Input { MEMORY, MAPPED, STREAMED, PREFETCHED }
+
+  // a lexed file: its output, what it cost and the errors found in it
+  private static class Result {
+    final String output;
+    final long tokens, bytes, errors;
+
+    Result( String output, long tokens, long bytes, long errors ) {
+      this.output = output;
+      this.tokens = tokens;
+      this.bytes = bytes;
+      this.errors = errors;
+    }
+  }
+
+  public static void main( String[] args ) {
+    Input input = Input.MEMORY;
+    Lexer.Engine engine = Lexer.Engine.SCALAR;
+    boolean recovering = false;
+    int arg = 0;
+    for( ; arg < args.length; arg++ ) {
+      if( args[ arg ].equals( "-mmap" )) {
+        input = Input.MAPPED;
+      } else if( args[ arg ].equals( "-stream" )) {
+        input = Input.STREAMED;
+      } else if( args[ arg ].equals( "-prefetch" )) {
+        input = Input.PREFETCHED;
+      } else if( args[ arg ].equals( "-table" )) {
+        engine = Lexer.Engine.TABLE;
+      } else if( args[ arg ].equals( "-vector" )) {
+        engine = Lexer.Engine.VECTOR;
+      } else if( args[ arg ].equals( "-recover" )) {
+        recovering = true;
+      } else {
+        break;
+      }
+    }
+
+    if( arg == args.length ) {
+      System.out.println( "usage: java lexer.BatchLexer [-mmap | -stream | -prefetch] [-table | -vector] [-recover] file|directory|glob ..." );
+      return;
+    }
+
+    run( List.of( args ).subList( arg, args.length ), input, engine, recovering, System.out );
+  }
+
+  /**
+   *  @return true if operand names more than a single source file, i.e.
+   *  it is a directory or a glob
+   */
+  static boolean isBatchOperand( String operand ) {
+    return isGlob( operand ) || new File( operand ).isDirectory();
+  }
+
+  private static boolean isGlob( String operand ) {
+    return operand.indexOf( '*' ) >= 0 || operand.indexOf( '?' ) >= 0
+        || operand.indexOf( '[' ) >= 0 || operand.indexOf( '{' ) >= 0;
+  }
+
+  /**
+   *  lex all of the files named by operands and print their tokens to out
+   *
+   *  @param operands are file names, directories and globs
+   *  @param input is how the files are read
+   *  @param engine is the scanner each file is lexed with
+   *  @param recovering is true to lex every file to its end, see
+   *  Lexer.setRecovering, and count the errors found
+   *  @param out gets the tokens of every file, file by file
+   */
+  public static void run( List<String> operands, Input input, Lexer.Engine engine, boolean recovering, PrintStream out ) {
+    List<Path> files = new ArrayList<>();
+    for( String operand : operands ) {
+      try {
+        files.addAll( expand( operand ));
+      } catch( IOException e ) {
+        out.println( "==== " + operand + ": " + e );
+      }
+    }
+
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
+    long[] sizes = files.stream().mapToLong( BatchLexer::size ).toArray();
+    List<ForkJoinTask<Result>> results = new ArrayList<>( Collections.nCopies( files.size(), null ));
+
+    // submit the largest files first
+    IntStream.range( 0, files.size() ).boxed()
+        .sorted( Comparator.comparingLong( ( Integer i ) -> sizes[ i ] ).reversed() )
+        .forEach( i -> results.set( i, pool.submit( () -> lex( files.get( i ), input, engine, recovering, sizes[ i ] ))));
+
+    long tokens = 0, bytes = 0, errors = 0;
+    for( ForkJoinTask<Result> result : results ) {
+      Result lexed = result.join();
+      out.print( lexed.output );
+      tokens += lexed.tokens;
+      bytes += lexed.bytes;
+      errors += lexed.errors;
+    }
+    pool.shutdown();
+
+    double seconds = Math.max( System.nanoTime() - start, 1 ) / 1e9;
+    out.printf( "==== %d files, %d tokens, %d bytes in %.3f s: %.0f tokens/s, %.0f bytes/s%n",
+        files.size(), tokens, bytes, seconds, tokens / seconds, bytes / seconds );
+    if( recovering ) {
+      out.printf( "==== %d errors%n", errors );
+    }
+  }
+
+  /**
+   *  @return the source files operand stands for, sorted by name when it
+   *  is a directory or glob
+   */
+  private static List<Path> expand( String operand ) throws IOException {
+    if( isGlob( operand )) {
+      // walk from the directories before the first glob character
+      Path pattern = Paths.get( operand );
+      Path root = pattern.isAbsolute() ? pattern.getRoot() : Paths.get( "" );
+      for( Path part : pattern ) {
+        if( isGlob( part.toString() )) {
+          break;
+        }
+        root = root.resolve( part );
+      }
+
+      PathMatcher matcher = FileSystems.getDefault().getPathMatcher( "glob:" + operand );
+      Path base = root;
+      try( Stream<Path> walk = Files.walk( base.toString().isEmpty() ? Paths.get( "." ) : base )) {
+        return walk.filter( Files::isRegularFile )
+            .filter( file -> matcher.matches( base.toString().isEmpty() ? file.normalize() : file ))
+            .sorted()
+            .collect( Collectors.toList() );
+      }
+    }
+
+    Path path = Paths.get( operand );
+    if( Files.isDirectory( path )) {
+      try( Stream<Path> walk = Files.walk( path )) {
+        return walk.filter( Files::isRegularFile )
+            .filter( file -> isSource( file.toString() ))
+            .sorted()
+            .collect( Collectors.toList() );
+      }
+    }
+
+    return List.of( path );
+  }
+
+  private static boolean isSource( String file ) {
+    return file.endsWith( ".x" ) || file.endsWith( ".x.gz" ) || SourceArchive.isZip( file );
+  }
+
+  private static long size( Path file ) {
+    try {
+      return Files.size( file );
+    } catch( IOException e ) {
+      return 0;
+    }
+  }
+
+  /**
+   *  @return the tokens of file printed the way Lexer.main prints them,
+   *  under a header with the file name
+   */
+  private static Result lex( Path file, Input input, Lexer.Engine engine, boolean recovering, long bytes ) {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream( buffer );
+    String name = file.toString();
+    long tokens = 0, errors = 0;
+
+    try {
+      if( SourceArchive.isZip( name )) {
+        long[] count = { 0, 0 };
+        SourceArchive.forEachEntry( name, ( entry, lexer ) -> {
+          out.println( "==== " + name + "!" + entry );
+          lexer.setEngine( engine );
+          lexer.setErrorOutput( out );
+          lexer.setRecovering( recovering );
+          count[ 0 ] += Lexer.printTokens( lexer, out );
+          count[ 1 ] += lexer.getDiagnostics().size();
+        });
+        tokens = count[ 0 ];
+        errors = count[ 1 ];
+      } else {
+        SourceReader reader;
+        if( input == Input.STREAMED ) {
+          reader = new StreamingSourceReader( Lexer.openSource( name ));
+        } else if( input == Input.PREFETCHED ) {
+          reader = new StreamingSourceReader( new PrefetchReader( Lexer.openSource( name )));
+        } else if( SourceArchive.isGzip( name )) {
+          reader = new MemorySourceReader( SourceArchive.openGzip( name ));
+        } else if( input == Input.MAPPED ) {
+          reader = new MappedSourceReader( name );
+        } else {
+          reader = MemorySourceReader.fromFile( name );
+        }
+
+        out.println( "==== " + name );
+        Lexer lexer = new Lexer( reader );
+        lexer.setEngine( engine );
+        lexer.setErrorOutput( out );
+        lexer.setRecovering( recovering );
+        tokens = Lexer.printTokens( lexer, out );
+        errors = lexer.getDiagnostics().size();
+      }
+    } catch( IOException | UncheckedIOException e ) {
+      out.println( "==== " + name + ": " + e );
+    }
+
+    out.flush();
+    return new Result( buffer.toString(), tokens, bytes, errors );
+  }
+}
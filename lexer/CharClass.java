@@ -0,0 +1,53 @@
+package lexer;
+
+/**
+ *  CharClass answers the character class questions the Lexer asks for
+ *  every character; ASCII characters are looked up in a 128 entry table
+ *  built from the Character methods at class load, so the answers are
+ *  exactly those of Character.isWhitespace, isJavaIdentifierStart,
+ *  isJavaIdentifierPart and isDigit, while any other character falls
+ *  back to the full Unicode rules in Character.
+ */
+final class CharClass {
+  static final int WHITESPACE = 1, ID_START = 2, ID_PART = 4, DIGIT = 8;
+
+  private static final byte[] ASCII = new byte[ 128 ];
+
+  static {
+    for( char c = 0; c < ASCII.length; c++ ) {
+      int flags = 0;
+      if( Character.isWhitespace( c )) {
+        flags |= WHITESPACE;
+      }
+      if( Character.isJavaIdentifierStart( c )) {
+        flags |= ID_START;
+      }
+      if( Character.isJavaIdentifierPart( c )) {
+        flags |= ID_PART;
+      }
+      if( Character.isDigit( c )) {
+        flags |= DIGIT;
+      }
+      ASCII[ c ] = (byte) flags;
+    }
+  }
+
+  private CharClass() {
+  }
+
+  static boolean isWhitespace( int ch ) {
+    return ch >= 0 && ( ch < 128 ? ( ASCII[ ch ] & WHITESPACE ) != 0 : Character.isWhitespace( ch ));
+  }
+
+  static boolean isIdentifierStart( int ch ) {
+    return ch >= 0 && ( ch < 128 ? ( ASCII[ ch ] & ID_START ) != 0 : Character.isJavaIdentifierStart( ch ));
+  }
+
+  static boolean isIdentifierPart( int ch ) {
+    return ch >= 0 && ( ch < 128 ? ( ASCII[ ch ] & ID_PART ) != 0 : Character.isJavaIdentifierPart( ch ));
+  }
+
+  static boolean isDigit( int ch ) {
+    return ch >= 0 && ( ch < 128 ? ( ASCII[ ch ] & DIGIT ) != 0 : Character.isDigit( ch ));
+  }
+}
@@ -0,0 +1,75 @@
+package lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ *  A ChunkTask lexes the part of a source in memory a Lexer has left on
+ *  a ForkJoinPool for Lexer.tokenize( TokenBuffer, ForkJoinPool ): while
+ *  the part is larger than CHUNK_CHARS it is split in two at a line
+ *  boundary, which no token crosses, and the halves are lexed as tasks
+ *  of their own.  The readers of the halves share the line index of the
+ *  whole source, so their tokens already have the right line numbers
+ *  and positions.  Each chunk keeps its tokens and errors to itself so
+ *  the Lexer can put them together in the order of the source.
+ */
+class ChunkTask extends RecursiveTask<List<ChunkTask.Chunk>> {
+  private static final long serialVersionUID = 1L;
+
+  // below this many chars a chunk costs more to split than to lex
+  static final int CHUNK_CHARS = 1 << 16;
+
+  /**
+   *  the tokens, error messages and Diagnostics of a chunk, and whether
+   *  it ended at an illegal character, after which the Lexer takes no
+   *  more tokens
+   */
+  static class Chunk {
+    final TokenBuffer tokens;
+    final String errors;
+    final List<Diagnostic> diagnostics;
+    final boolean failed;
+
+    Chunk( TokenBuffer tokens, String errors, List<Diagnostic> diagnostics, boolean failed ) {
+      this.tokens = tokens;
+      this.errors = errors;
+      this.diagnostics = diagnostics;
+      this.failed = failed;
+    }
+  }
+
+  private final Lexer lexer;
+
+  ChunkTask( Lexer lexer ) {
+    this.lexer = lexer;
+  }
+
+  @Override
+  protected List<Chunk> compute() {
+    Lexer rest = lexer.remaining() > CHUNK_CHARS ? lexer.splitLines() : null;
+
+    if( rest != null ) {
+      ChunkTask first = new ChunkTask( lexer ), second = new ChunkTask( rest );
+      invokeAll( first, second );
+
+      List<Chunk> chunks = new ArrayList<>( first.join() );
+      chunks.addAll( second.join() );
+      return chunks;
+    }
+
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream( errors );
+    lexer.setErrorOutput( out );
+
+    TokenBuffer tokens = new TokenBuffer( (int) Math.min( lexer.remaining() / 4, CHUNK_CHARS ));
+    lexer.tokenize( tokens );
+    out.flush();
+
+    List<Chunk> chunks = new ArrayList<>();
+    chunks.add( new Chunk( tokens, errors.toString(), lexer.getDiagnostics(), lexer.hasFailed() ));
+    return chunks;
+  }
+}
@@ -0,0 +1,97 @@
+package lexer;
+
+/**
+ *  A Diagnostic describes an error the Lexer found: what kind of error
+ *  it is, where it is and the text of the line it is on, so a tool can
+ *  report it without parsing the message printed for it.  The Lexer
+ *  keeps those it finds, see Lexer.getDiagnostics(); in recovery mode
+ *  each illegal character or date is also returned as an ErrorToken.
+ */
+public class Diagnostic {
+  public enum Kind {
+    ILLEGAL_CHARACTER( "illegal character" ),
+    ILLEGAL_DATE( "illegal date" ),
+    NUMBER_TOO_LARGE( "number too large" );
+
+    private final String description;
+
+    Kind( String description ) {
+      this.description = description;
+    }
+
+    /**
+     *  @return the kind as it starts the message, e.g. "illegal date"
+     */
+    public String getDescription() {
+      return description;
+    }
+  }
+
+  private final Kind kind;
+  private final int lineNumber, leftPosition, rightPosition;
+  private final String text, snippet;
+
+  /**
+   *  @param kind is the kind of error
+   *  @param lineNumber is the line of the error
+   *  @param leftPosition is the column where the bad text begins
+   *  @param rightPosition is the column where the bad text ends
+   *  @param text is the bad text
+   *  @param snippet is the line the error is on, or null if it is not known
+   */
+  public Diagnostic( Kind kind, int lineNumber, int leftPosition, int rightPosition, String text, String snippet ) {
+    this.kind = kind;
+    this.lineNumber = lineNumber;
+    this.leftPosition = leftPosition;
+    this.rightPosition = rightPosition;
+    this.text = text;
+    this.snippet = snippet;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public int getLeftPosition() {
+    return leftPosition;
+  }
+
+  public int getRightPosition() {
+    return rightPosition;
+  }
+
+  /**
+   *  @return the bad text, e.g. the illegal character
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   *  @return the text of the line the error is on, or null if it is not
+   *  known
+   */
+  public String getSnippet() {
+    return snippet;
+  }
+
+  /**
+   *  @return the message a LexerListener is given, e.g.
+   *  "illegal character: @"
+   */
+  public String getMessage() {
+    return kind.getDescription() + ": " + text;
+  }
+
+  /**
+   *  @return the message and where the error is, e.g.
+   *  "3:4-4: illegal character: @"
+   */
+  public String toString() {
+    return lineNumber + ":" + leftPosition + "-" + rightPosition + ": " + getMessage();
+  }
+}
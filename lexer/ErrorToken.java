@@ -0,0 +1,32 @@
+package lexer;
+
+/**
+ *  An ErrorToken is what a recovering Lexer returns for an illegal
+ *  character or date instead of stopping: a token of kind BogusToken
+ *  covering the bad text, which carries the Diagnostic for it.  It has
+ *  no Symbol or value, so it cannot be added to a TokenBuffer.
+ */
+public class ErrorToken extends Token {
+  private final Diagnostic diagnostic;
+
+  /**
+   *  @param diagnostic describes the error; the token covers its text
+   */
+  public ErrorToken( Diagnostic diagnostic ) {
+    super( diagnostic.getLeftPosition(), diagnostic.getRightPosition(), diagnostic.getLineNumber(),
+        Tokens.BogusToken, diagnostic.getText() );
+    this.diagnostic = diagnostic;
+  }
+
+  public Diagnostic getDiagnostic() {
+    return diagnostic;
+  }
+
+  /**
+   *  @return false, the bad text has no value
+   */
+  @Override
+  public boolean hasValue() {
+    return false;
+  }
+}
@@ -0,0 +1,55 @@
+package lexer;
+ 
+/**
+ *  This file is automatically generated<br>
+ *  it contains a perfect hash table of the keywords, so an
+ *  identifier is told from a keyword without making a String
+*/
+final class Keywords {
+  private static final int FIRST = 7, LAST = 25, MASK = 31;
+  private static final int MIN_LENGTH = 2, MAX_LENGTH = 8;
+ 
+  private static final String[] WORDS = {
+    null, null, "return", "while", "else", null, "break", null,
+    null, null, "number", null, null, null, "then", "for",
+    "function", null, null, "boolean", null, null, "int", "if",
+    null, null, "continue", null, "program", "date", null, "in"
+  };
+ 
+  private static final Tokens[] KINDS = {
+    null, null, Tokens.Return, Tokens.While,
+    Tokens.Else, null, Tokens.Break, null,
+    null, null, Tokens.Number, null,
+    null, null, Tokens.Then, Tokens.For,
+    Tokens.Function, null, null, Tokens.BOOLean,
+    null, null, Tokens.Int, Tokens.If,
+    null, null, Tokens.Continue, null,
+    Tokens.Program, Tokens.DateType, null, Tokens.In
+  };
+ 
+  private Keywords() {
+  }
+ 
+  /**
+   *  @return the kind of keyword id is, or Tokens.Identifier if it is
+   *  not one
+   */
+  static Tokens kind( CharSequence id ) {
+    int length = id.length();
+    if( length < MIN_LENGTH || length > MAX_LENGTH ) {
+      return Tokens.Identifier;
+    }
+ 
+    int slot = ( id.charAt( 0 ) * FIRST + id.charAt( length - 1 ) * LAST + length ) & MASK;
+    String word = WORDS[ slot ];
+    if( word == null || word.length() != length ) {
+      return Tokens.Identifier;
+    }
+    for( int i = 0; i < length; i++ ) {
+      if( word.charAt( i ) != id.charAt( i )) {
+        return Tokens.Identifier;
+      }
+    }
+    return KINDS[ slot ];
+  }
+}
@@ -1,312 +1,1257 @@
-package lexer;
-
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.LineNumberReader;
-
-/**
- *  The Lexer class is responsible for scanning the source file
- *  which is a stream of characters and returning a stream of
- *  tokens; each token object will contain the string (or access
- *  to the string) that describes the token along with an
- *  indication of its location in the source program to be used
- *  for error reporting; we are tracking line numbers; white spaces
- *  are space, tab, newlines
- */
-public class Lexer {
-  private boolean atEOF = false;
-  // next character to process
-  private char ch;
-  private SourceReader source;
-  private int lineNumber;
-
-  // positions in line of current token
-  private int startPosition, endPosition;
-
-  /**
-   *  Lexer constructor
-   *
-   * @param sourceFile is the name of the File to read the program source from
-   */
-  public Lexer( String sourceFile ) throws Exception {
-    // init token table
-    new TokenType();
-    source = new SourceReader( sourceFile );
-    ch = source.read();
-  }
-
-  /**
-   *  newIdTokens are either ids or reserved words; new id's will be inserted
-   *  in the symbol table with an indication that they are id's
-   *
-   *  @param id is the String just scanned - it's either an id or reserved word
-   *  @return the Token; either an id or one for the reserved words
-   */
-  public Token newIdToken( String id ) {
-    return new Token(
-      startPosition,
-      endPosition,
-      lineNumber, Symbol.symbol( id, Tokens.Identifier ));
-  }
-
-  /**
-   *   Number are inserted in the symbol table; we don't convert the
-   *   numeric strings to numbers until we load the bytecodes for interpreting;
-   *   this ensures that any machine numeric dependencies are deferred
-   *   until we actually run the program; i.e. the numeric constraints of the
-   *   hardware used to compile the source program are not used
-   *
-   *   @param number is the int String just scanned
-   *   @param kind token kind
-   *   @return created token
- */
-
-  public Token newNumberToken(String number, Tokens kind) {
-    return new Token(
-      startPosition,
-      endPosition,
-      lineNumber,
-      Symbol.symbol(number, kind)
-    );
-  }
-
-  /**
-   *  build the token for operators (+ -) or separators (parens, braces)
-   *  filter out comments which begin with two slashes
-   *
-   *  @param tokenString is the String representing the token
-   *  @return the Token just found
-   */
-  public Token makeToken( String tokenString) {
-    // filter comments
-    if( tokenString.equals("//") ) {
-      try {
-        int oldLine = source.getLineNo();
-
-        do {
-          ch = source.read();
-        } while( oldLine == source.getLineNo() );
-      } catch (Exception e) {
-        atEOF = true;
-      }
-
-      return nextToken();
-    }
-
-    // ensure it's a valid token
-    // Why not just set to null as we have already found illegal token
-    Symbol symbol = Symbol.symbol( tokenString, Tokens.BogusToken );
-
-    if( symbol == null ) {
-      System.out.println( "******** illegal character: " +
-              tokenString + " left: " + startPosition + " right: " + endPosition + " line: "+ lineNumber + " current error line:" + source.getLine());
-      atEOF = true;
-      return nextToken();
-    }
-
-    return new Token( startPosition, endPosition, lineNumber,symbol );
-  }
-
-  /**
-   *  @return the next Token found in the source file
-   */
-  public Token nextToken() {
-    // ch is always the next char to process
-    if( atEOF ) {
-      if( source != null ) {
-        source.close();
-        source = null;
-      }
-      return null;
-    }
-
-    try {
-      // scan past whitespace
-      while( Character.isWhitespace( ch )) {
-        ch = source.read();
-      }
-    } catch( Exception e ) {
-      atEOF = true;
-      return nextToken();
-    }
-
-    startPosition = source.getPosition();
-    endPosition = startPosition - 1;
-    lineNumber = source.getLineNo();
-
-    if( Character.isJavaIdentifierStart( ch )) {
-      return getIdToken();
-    }
-
-    if( Character.isDigit( ch )) {
-      return getDigitToken();
-    }
-
-    // At this point the only tokens to check for are one or two
-    // characters; we must also check for comments that begin with
-    // 2 slashes
-    String charOld = "" + ch;
-    String operator = charOld;
-    Symbol sym;
-    try {
-      endPosition++;
-      ch = source.read();
-      operator += ch;
-
-      // check if valid 2 char operator; if it's not in the symbol
-      // table then don't insert it since we really have a one char
-      // token
-      sym = Symbol.symbol( operator, Tokens.BogusToken );
-      if (sym == null) {
-        // it must be a one char token
-        return makeToken( charOld );
-      }
-
-      endPosition++;
-      ch = source.read();
-
-      return makeToken( operator );
-    } catch( Exception e ) { /* no-op */ }
-
-    atEOF = true;
-    if( startPosition == endPosition ) {
-      operator = charOld;
-    }
-
-    return makeToken( operator );
-  }
-
-  private Token getIdToken() {
-    // return tokens for ids and reserved words
-    String id = "";
-
-    try {
-      do {
-        endPosition++;
-        id += ch;
-        ch = source.read();
-      } while( Character.isJavaIdentifierPart( ch ));
-    } catch( Exception e ) {
-      atEOF = true;
-    }
-
-    return newIdToken( id );
-  }
-
-  /**
-   * Handle and return the Integer/Date/Number token.
-   *
-   * @return token of types found.
-   */
-  private Token getDigitToken() {
-    // Set default value to Integer
-    String token = "";
-    Tokens kind = Tokens.INTeger;
-
-    try {
-      token += readInteger();
-    } catch (Exception e) {
-      atEOF = true;
-    }
-
-    try {
-      // Handle the case of Number or Date
-      if ('.' == ch || '~' == ch) {
-        endPosition++;
-        token += ch;
-        ch = source.read();
-        token += readInteger();
-
-        if (isNumberLit(token)) { // Number case
-          kind = Tokens.NumberLit;
-        } else if ('~' == ch) {  // Date case
-          token += ch;
-
-          ch = source.read();
-          token += readInteger();
-
-          if (isDateLit(token)) {
-            kind = Tokens.DateLit;
-          } else {
-            System.out.println( "******** illegal character:  " + token + " left: " + startPosition
-                    + " right: " + endPosition + " line: "+ lineNumber + " current error line:" + source.getLine() );
-            atEOF = true;
-            return nextToken();
-          }
-
-        }
-      }
-    } catch (Exception e) {
-      atEOF = true;
-    }
-
-    return newNumberToken( token, kind );
-  }
-
-  /**
-   * Read and the return the integer value.
-   * The criteria to call the method is the current character is digit.
-   *
-   * @return integer value.
-   * @throws IOException if failed to read the source.
-   */
-  private String readInteger() throws IOException {
-    String number = "";
-    do {
-      endPosition++;
-      number += ch;
-      ch = source.read();
-    } while (Character.isDigit(ch));
-    return number;
-  }
-
-  private boolean isNumberLit(String number) {
-    return number.matches("\\d+\\.\\d+");
-  }
-
-  private boolean isDateLit(String date) {
-    return date.matches("(\\d\\d?)~(\\d\\d?)~(\\d\\d?)")||
-            date.matches("(\\d\\d?)~(\\d\\d?)~(\\d\\d\\d\\d)");
-  }
-
-  public static void main(String[] args) {
-
-    if (args.length == 0){
-      System.out.println("usage: java lexer.Lexer filename.x");
-      return;
-    }
-
-    Token token;
-
-    try {
-      Lexer lex = new Lexer(args[0]);
-
-      while (true) {
-        token = lex.nextToken();
-
-        if (token == null) {
-          break;
-        }
-
-        System.out.printf("%-11s left: %-8d right: %-8d line: %-8d %s%n",
-                token, token.getLeftPosition(), token.getRightPosition(), token.getLineNumber(), token.getKind());
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-
-    String filePath = (args[0]);
-
-    try (LineNumberReader lineReader = new LineNumberReader(new FileReader(filePath))){
-      String lineText;
-
-      while ((lineText = lineReader.readLine()) != null) {
-        System.out.printf( "%3d: %s%n",lineReader.getLineNumber(), lineText);
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-
-  }
-
+package lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *  The Lexer class is responsible for scanning the source file
+ *  which is a stream of characters and returning a stream of
+ *  tokens; each token object will contain the string (or access
+ *  to the string) that describes the token along with an
+ *  indication of its location in the source program to be used
+ *  for error reporting; we are tracking line numbers; white spaces
+ *  are space, tab, newlines
+ *  <p>
+ *  An illegal character or date stops the scan unless the Lexer is
+ *  recovering (see setRecovering); either way the errors found are kept
+ *  as Diagnostics, see getDiagnostics()
+ *  <p>
+ *  <b>A parallel stream() of the tokens is only lexed in parts when the
+ *  Lexer is recovering.</b>  Otherwise the tokens end at the first
+ *  illegal character, which a part lexed ahead of it cannot know about,
+ *  so the stream is lexed in one piece however parallel() it is;
+ *  tokenize( TokenBuffer, ForkJoinPool ) lexes in parts either way
+ */
+public class Lexer implements Iterable<Token> {
+  /**
+   *  The scanners a Lexer can run: SCALAR is the hand written one and
+   *  TABLE runs the DFA in TokenTable, which TokenSetup generates from the
+   *  tokens file; VECTOR is the hand written one taking each run of
+   *  whitespace, identifier or digit characters in one step with the
+   *  Vector API (see RunFinder) when the source is a char[] in memory;
+   *  all of them return the same tokens
+   */
+  public enum Engine { SCALAR, TABLE, VECTOR }
+
+  private boolean atEOF = false;
+  // true once scanning stopped at an illegal character
+  private boolean failed = false;
+  // true to go on after an illegal character, see setRecovering
+  private boolean recovering = false;
+  // the errors found so far, or null if there were none
+  private List<Diagnostic> diagnostics;
+  // the Lexer a part of a parallel stream keeps its errors in, see
+  // keepDiagnosticsIn, or null to keep them here
+  private Lexer diagnosticsOwner;
+  // the error just found, for the ErrorToken that takes its place
+  private Diagnostic error;
+  // next character to process or SourceReader.EOF
+  private int ch;
+  private SourceReader source;
+  private int lineNumber;
+  private LexerListener listener = LexerListener.NONE;
+  // where illegal characters are reported
+  private PrintStream errorOutput = System.out;
+  private Engine engine = Engine.SCALAR;
+  // text of the identifier or literal being scanned
+  private final StringBuilder lexeme = new StringBuilder();
+  // offset of the current token in the source, or -1 if the source
+  // cannot be sliced and the lexeme has to be copied
+  private int startOffset;
+  // value and scale of the literal just scanned, see Token.getValue()
+  private long literalValue;
+  private int literalScale;
+  // value of the digits read by readInteger, or -1 if it is too large
+  private long digitsValue;
+  // with the VECTOR engine over a char[] source: what finds the runs, the
+  // source and its chars, and where the last run found started
+  private RunFinder runs;
+  private MemorySourceReader runSource;
+  private char[] runChars;
+  private int runFrom;
+  // the reader reset( text ) made, kept for the next reset
+  private MemorySourceReader reusable;
+
+  // positions in line of current token
+  private int startPosition, endPosition;
+
+  /**
+   *  Lexer constructor
+   *
+   * @param sourceFile is the name of the File to read the program source from
+   */
+  public Lexer( String sourceFile ) throws Exception {
+    this( new SourceReader( sourceFile ));
+  }
+
+  /**
+   *  Lexer constructor
+   *
+   * @param source is the SourceReader to read the program source from,
+   *  e.g. a MappedSourceReader for large source files
+   */
+  public Lexer( SourceReader source ) {
+    this.source = source;
+    // the first character is read by the first nextToken which skips
+    // this blank, so a listener set after construction sees line 1
+    ch = ' ';
+  }
+
+  static {
+    // init token table; the Symbols are the same for every Lexer, so
+    // once is enough
+    new TokenType();
+  }
+
+  /**
+   *  Start over on another source, keeping the engine, listener and
+   *  error output and the buffers used while scanning, so a Lexer can
+   *  be used for one source after another, e.g. from a LexerPool; the
+   *  Tokens already returned are not affected
+   *
+   *  @param source is the SourceReader to read the next program from
+   */
+  public void reset( SourceReader source ) {
+    // a source left part way through is closed
+    if( this.source != null && this.source != source ) {
+      this.source.close();
+    }
+    this.source = source;
+    atEOF = false;
+    failed = false;
+    diagnostics = null;
+    diagnosticsOwner = null;
+    ch = ' ';
+    lineNumber = 0;
+    startPosition = 0;
+    endPosition = 0;
+    lexeme.setLength( 0 );
+    source.setListener( listener );
+    // the VECTOR engine looks at the new source's chars
+    setEngine( engine );
+  }
+
+  /**
+   *  Start over on the source held in text, which is lexed in place; the
+   *  MemorySourceReader of the last reset( text ) is used again, so once
+   *  its line index fits nothing is allocated
+   */
+  public void reset( CharSequence text ) {
+    if( reusable == null ) {
+      reusable = new MemorySourceReader( text );
+    } else {
+      reusable.reset( text );
+    }
+    reset( reusable );
+  }
+
+  /**
+   *  Start over on the source held in part of chars, which is lexed in
+   *  place, like reset( CharSequence )
+   */
+  public void reset( char[] chars, int offset, int length ) {
+    if( reusable == null ) {
+      reusable = new MemorySourceReader( chars, offset, length );
+    } else {
+      reusable.reset( chars, offset, length );
+    }
+    reset( reusable );
+  }
+
+  /**
+   *  @param text is the program source; it is lexed in place, not copied
+   *  @return a Lexer for the source held in text
+   */
+  public static Lexer of( CharSequence text ) {
+    return new Lexer( new MemorySourceReader( text ));
+  }
+
+  /**
+   *  @param chars holds the program source; it is lexed in place, not copied
+   *  @param offset is the index of the first char of the source
+   *  @param length is the number of chars in the source
+   *  @return a Lexer for the source held in chars
+   */
+  public static Lexer of( char[] chars, int offset, int length ) {
+    return new Lexer( new MemorySourceReader( chars, offset, length ));
+  }
+
+  /**
+   *  @param bytes holds the program source as UTF-8; it is scanned in
+   *  place from its position to its limit, not copied or decoded up front
+   *  @return a Lexer for the source held in bytes
+   */
+  public static Lexer of( ByteBuffer bytes ) {
+    return new Lexer( new MappedSourceReader( bytes ));
+  }
+
+  /**
+   *  @param bytes holds the program source as UTF-8; it is scanned in place
+   *  @param offset is the index of the first byte of the source
+   *  @param length is the number of bytes in the source
+   *  @return a Lexer for the source held in bytes
+   */
+  public static Lexer of( byte[] bytes, int offset, int length ) {
+    return of( ByteBuffer.wrap( bytes, offset, length ));
+  }
+
+  /**
+   *  @param reader supplies the program source; it is read line by line
+   *  @return a Lexer for the source read from reader
+   */
+  public static Lexer of( Reader reader ) {
+    return new Lexer( new SourceReader( reader ));
+  }
+
+  /**
+   *  @param in supplies the program source
+   *  @param charset is the encoding of the source
+   *  @return a Lexer for the source read from in
+   */
+  public static Lexer of( InputStream in, Charset charset ) {
+    return of( new InputStreamReader( in, charset ));
+  }
+
+  /**
+   *  @param channel supplies the program source
+   *  @param charset is the encoding of the source
+   *  @return a Lexer for the source read from channel
+   */
+  public static Lexer of( ReadableByteChannel channel, Charset charset ) {
+    return of( Channels.newReader( channel, charset ));
+  }
+
+  /**
+   *  Register a listener for the lines read, tokens returned and errors
+   *  found; LexerListener.NONE turns the notifications off
+   *
+   *  @param listener is the listener to notify
+   */
+  public void setListener( LexerListener listener ) {
+    this.listener = listener;
+    if( source != null ) {
+      source.setListener( listener );
+    }
+  }
+
+  /**
+   *  @param errorOutput is where illegal characters are reported; it is
+   *  System.out unless changed, e.g. to keep the messages of each file
+   *  together when many files are lexed at once
+   */
+  public void setErrorOutput( PrintStream errorOutput ) {
+    this.errorOutput = errorOutput;
+  }
+
+  /**
+   *  @param recovering is true to go on after an illegal character or
+   *  date: the bad text is returned as an ErrorToken, whose kind is
+   *  BogusToken, and the scan starts again with the character after it,
+   *  so one pass finds every error.  Otherwise the scan stops there,
+   *  which is the default
+   */
+  public void setRecovering( boolean recovering ) {
+    this.recovering = recovering;
+  }
+
+  boolean isRecovering() {
+    return recovering;
+  }
+
+  /**
+   *  @return the errors found so far, in the order of the source,
+   *  including those of the parts of a parallel stream of its tokens; a
+   *  reset clears them
+   */
+  public synchronized List<Diagnostic> getDiagnostics() {
+    return diagnostics == null ? List.of() : List.copyOf( diagnostics );
+  }
+
+  /**
+   *  @param engine is the scanner to run; set it before the first token
+   *  is asked for
+   */
+  public void setEngine( Engine engine ) {
+    this.engine = engine;
+    runs = null;
+
+    // other sources are scanned a character at a time as with SCALAR
+    if( engine == Engine.VECTOR && source instanceof MemorySourceReader
+        && ((MemorySourceReader) source).array() != null ) {
+      runSource = (MemorySourceReader) source;
+      runChars = runSource.array();
+      runs = VECTOR_RUNS != null ? VECTOR_RUNS : RunFinder.SCALAR;
+    }
+  }
+
+  // null if jdk.incubator.vector was not added to the JVM
+  private static final RunFinder VECTOR_RUNS = RunFinder.vector();
+
+  /**
+   *  @return true if the VECTOR engine can use the Vector API; without it
+   *  the runs are found a character at a time
+   */
+  public static boolean isVectorAvailable() {
+    return VECTOR_RUNS != null;
+  }
+
+  /**
+   *  skip the run of runClass characters following ch, up to the end of
+   *  the line, in the source; the next read() returns the character
+   *  after it
+   *
+   *  @return the offset just past the run, which starts at runFrom
+   */
+  private int skipRun( int runClass ) {
+    runFrom = source.getOffset() + 1;
+    int to = runSource.currentLineEnd();
+
+    if( runFrom >= to ) {
+      return runFrom;
+    }
+
+    int end = runs.runEnd( runClass, runChars, runFrom, to );
+    runSource.skip( end - runFrom );
+    return end;
+  }
+
+  /**
+   *  newIdTokens are either ids or reserved words; new id's will be inserted
+   *  in the symbol table with an indication that they are id's
+   *
+   *  @param id is the String just scanned - it's either an id or reserved word
+   *  @return the Token; either an id or one for the reserved words
+   */
+  public Token newIdToken( String id ) {
+    return new Token(
+      startPosition,
+      endPosition,
+      lineNumber, Symbol.symbol( id, Tokens.Identifier ));
+  }
+
+  /**
+   *   Number are inserted in the symbol table; we don't convert the
+   *   numeric strings to numbers until we load the bytecodes for interpreting;
+   *   this ensures that any machine numeric dependencies are deferred
+   *   until we actually run the program; i.e. the numeric constraints of the
+   *   hardware used to compile the source program are not used
+   *
+   *   @param number is the int String just scanned
+   *   @param kind token kind
+   *   @return created token
+ */
+
+  public Token newNumberToken(String number, Tokens kind) {
+    return new Token(
+      startPosition,
+      endPosition,
+      lineNumber,
+      Symbol.symbol(number, kind)
+    );
+  }
+
+  /**
+   *  build the token for operators (+ -) or separators (parens, braces)
+   *  filter out comments which begin with two slashes
+   *
+   *  @param tokenString is the String representing the token
+   *  @return the Token just found
+   */
+  public Token makeToken( String tokenString) {
+    Tokens kind = Operators.kind( tokenString );
+
+    if( kind == null ) {
+      illegal( tokenString );
+      if( recovering ) {
+        return errorToken();
+      }
+    }
+
+    Token token = kind != null ? operatorToken( kind ) : null;
+    return token != null ? token : scan();
+  }
+
+  /**
+   *  @param kind is an operator or separator from the Operators table
+   *  @return the Token for it, or null if it was a comment, which is
+   *  skipped
+   */
+  private Token operatorToken( Tokens kind ) {
+    // filter comments
+    if( kind == Tokens.Comment ) {
+      skipComment();
+      return null;
+    }
+
+    return new Token( startPosition, endPosition, lineNumber, TokenType.tokens.get( kind ));
+  }
+
+  /**
+   *  skip the rest of the line after the two slashes of a comment
+   */
+  private void skipComment() {
+    try {
+      source.skipLine();
+    } catch( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+
+    ch = read();
+    if( ch == SourceReader.EOF ) {
+      atEOF = true;
+    }
+  }
+
+  /**
+   *  report an illegal character or malformed date; scanning stops there
+   *  unless the Lexer is recovering, when errorToken() gives the token
+   *  for it
+   *
+   *  @param text is the text of the bad token
+   */
+  private void illegal( String text ) {
+    boolean date = CharClass.isDigit( text.charAt( 0 ));
+
+    errorOutput.println( "******** illegal character: " + ( date ? " " : "" ) +
+            text + " left: " + startPosition + " right: " + endPosition + " line: "+ lineNumber + " current error line:" + source.getLine());
+    error = report( date ? Diagnostic.Kind.ILLEGAL_DATE : Diagnostic.Kind.ILLEGAL_CHARACTER, text );
+
+    if( !recovering ) {
+      atEOF = true;
+      failed = true;
+    } else if( ch == SourceReader.EOF ) {
+      atEOF = true;
+    }
+  }
+
+  /**
+   *  keep a Diagnostic for the error in the current token and tell the
+   *  listener about it
+   *
+   *  @param text is the text of the bad token
+   *  @return the Diagnostic
+   */
+  private Diagnostic report( Diagnostic.Kind kind, String text ) {
+    Diagnostic diagnostic = new Diagnostic( kind, lineNumber, startPosition, endPosition, text, source.getLine() );
+    ( diagnosticsOwner != null ? diagnosticsOwner : this ).keep( diagnostic );
+    listener.error( diagnostic.getMessage(), lineNumber, startPosition, endPosition );
+    return diagnostic;
+  }
+
+  /**
+   *  add diagnostic to the errors found so far in the order of the
+   *  source; the parts of a parallel stream add theirs at the same time,
+   *  each for lines of its own, so it goes after those on earlier lines
+   */
+  private synchronized void keep( Diagnostic diagnostic ) {
+    if( diagnostics == null ) {
+      diagnostics = new ArrayList<>();
+    }
+
+    int index = diagnostics.size();
+    while( index > 0 && diagnostics.get( index - 1 ).getLineNumber() > diagnostic.getLineNumber() ) {
+      index--;
+    }
+    diagnostics.add( index, diagnostic );
+  }
+
+  /**
+   *  keep the errors found from now on in lexer, or in the Lexer lexer
+   *  keeps its errors in, e.g. for a part of a parallel stream
+   */
+  void keepDiagnosticsIn( Lexer lexer ) {
+    diagnosticsOwner = lexer.diagnosticsOwner != null ? lexer.diagnosticsOwner : lexer;
+  }
+
+  /**
+   *  @return the ErrorToken for the error illegal() just reported if the
+   *  Lexer is recovering, otherwise null as the scan has stopped
+   */
+  private Token errorToken() {
+    return recovering ? new ErrorToken( error ) : null;
+  }
+
+  /**
+   *  @return true if scanning stopped at an illegal character rather
+   *  than at the end of the source
+   */
+  boolean hasFailed() {
+    return failed;
+  }
+
+  /**
+   *  @return the next Token found in the source file
+   *  @exception UncheckedIOException is thrown if the source cannot be read;
+   *  the end of the source is not an error, it just returns null
+   */
+  public Token nextToken() {
+    Token token = engine == Engine.TABLE ? scanTable() : scan();
+
+    if( token != null ) {
+      listener.tokenEmitted( token );
+    }
+
+    return token;
+  }
+
+  /**
+   *  @return the tokens not returned yet, in order; iterating takes them
+   *  from this Lexer
+   */
+  @Override
+  public Iterator<Token> iterator() {
+    return Spliterators.iterator( spliterator() );
+  }
+
+  /**
+   *  @return a Spliterator over the tokens not returned yet, ORDERED and
+   *  NONNULL; when the source is held in memory, e.g. by Lexer.of, the
+   *  Lexer is recovering and no listener is set it splits at line
+   *  boundaries, see TokenSpliterator
+   */
+  @Override
+  public Spliterator<Token> spliterator() {
+    return new TokenSpliterator( this );
+  }
+
+  /**
+   *  @return a sequential Stream of the tokens not returned yet; call
+   *  parallel() on it to lex a source held in memory in parts.
+   *  <b>Only a recovering Lexer is lexed in parts</b>, see
+   *  setRecovering; without recovery a parallel stream still gives the
+   *  right tokens but lexes them one after another, so use
+   *  tokenize( TokenBuffer, ForkJoinPool ) for that
+   */
+  public Stream<Token> stream() {
+    return StreamSupport.stream( spliterator(), false );
+  }
+
+  /**
+   *  split the lines not scanned yet in two at a line boundary; this
+   *  Lexer stops before the second half.  Only a source in memory can
+   *  be split, and not while a listener, which expects the lines in
+   *  order, is set
+   *
+   *  @return a Lexer with the same engine, error output and recovery mode
+   *  for the second half, or null if the lines cannot be split
+   */
+  Lexer splitLines() {
+    if( atEOF || listener != LexerListener.NONE || !( source instanceof MemorySourceReader )) {
+      return null;
+    }
+
+    MemorySourceReader rest = ((MemorySourceReader) source).split();
+    if( rest == null ) {
+      return null;
+    }
+
+    Lexer lexer = new Lexer( rest );
+    lexer.setErrorOutput( errorOutput );
+    lexer.setEngine( engine );
+    lexer.setRecovering( recovering );
+    return lexer;
+  }
+
+  /**
+   *  @return the number of chars left to scan, or Long.MAX_VALUE if the
+   *  source is not in memory
+   */
+  long remaining() {
+    if( atEOF || source == null ) {
+      return 0;
+    }
+    return source instanceof MemorySourceReader ? ((MemorySourceReader) source).remaining() : Long.MAX_VALUE;
+  }
+
+  /**
+   *  Scan all of the remaining tokens into buffer; the table engine
+   *  does this without creating a Token for each of them unless a
+   *  listener wants to see them.  The ErrorTokens of a recovering Lexer
+   *  are left out, their Diagnostics are in getDiagnostics()
+   *
+   *  @param buffer is where the tokens are added
+   *  @return the number of tokens added
+   */
+  public int tokenize( TokenBuffer buffer ) {
+    int count = 0;
+
+    if( engine == Engine.TABLE && listener == LexerListener.NONE ) {
+      Tokens kind;
+      while(( kind = scanTableKind() ) != null ) {
+        if( kind != Tokens.BogusToken ) {
+          buffer.add( startPosition, endPosition, lineNumber, lexemeSymbol( kind ), literalValue, literalScale );
+          count++;
+        }
+      }
+    } else {
+      Token token;
+      while(( token = nextToken() ) != null ) {
+        if( token.getKind() != Tokens.BogusToken ) {
+          buffer.add( token );
+          count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   *  @return the next character from the source or SourceReader.EOF; only
+   *  a real I/O failure is an exception
+   */
+  private int read() {
+    try {
+      return source.read();
+    } catch( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  private Token scan() {
+    // comments and errors give no token, so go round until there is one;
+    // the stack stays flat however many comment lines come in a row
+    while( !atEOF ) {
+      Token token = scanToken();
+
+      if( token != null ) {
+        return token;
+      }
+    }
+
+    if( source != null ) {
+      source.close();
+      source = null;
+    }
+    return null;
+  }
+
+  /**
+   *  @return the next Token or null if a comment, an error the Lexer does
+   *  not recover from or the end of the source was found instead
+   */
+  private Token scanToken() {
+    // ch is always the next char to process
+    // scan past whitespace
+    while( CharClass.isWhitespace( ch )) {
+      if( runs != null ) {
+        skipRun( RunFinder.WHITESPACE );
+      }
+      ch = read();
+    }
+
+    if( ch == SourceReader.EOF ) {
+      atEOF = true;
+      return null;
+    }
+
+    startPosition = source.getPosition();
+    startOffset = source.getOffset();
+    endPosition = startPosition - 1;
+    lineNumber = source.getLineNo();
+
+    if( CharClass.isIdentifierStart( ch )) {
+      return getIdToken();
+    }
+
+    if( CharClass.isDigit( ch )) {
+      return getDigitToken();
+    }
+
+    // At this point the only tokens to check for are one or two
+    // characters; we must also check for comments that begin with
+    // 2 slashes.  Both are looked up in the Operators table TokenSetup
+    // generates, by the first character and then the second
+    int first = ch;
+    endPosition++;
+    ch = read();
+
+    Tokens kind = Operators.pair( first, ch );
+    if( kind != null ) {
+      endPosition++;
+      ch = read();
+    } else {
+      // it must be a one char token
+      kind = Operators.single( first );
+    }
+
+    if( ch == SourceReader.EOF ) {
+      atEOF = true;
+    }
+
+    if( kind == null ) {
+      illegal( String.valueOf( (char) first ));
+      return errorToken();
+    }
+
+    return operatorToken( kind );
+  }
+
+  private Token scanTable() {
+    Tokens kind = scanTableKind();
+    if( kind == Tokens.BogusToken ) {
+      return errorToken();
+    }
+    return kind == null ? null : lexemeToken( kind );
+  }
+
+  /**
+   *  scan the next token by running the DFA in TokenTable as far as it
+   *  goes from the current character; the state it stops in tells the
+   *  kind of token
+   *
+   *  @return the kind of the token, whose text is left in lexeme and its
+   *  place in startPosition, endPosition and lineNumber, or null at the
+   *  end of the source; BogusToken if the Lexer is recovering from an
+   *  illegal character or date
+   */
+  private Tokens scanTableKind() {
+    while( !atEOF ) {
+      while( CharClass.isWhitespace( ch )) {
+        ch = read();
+      }
+
+      if( ch == SourceReader.EOF ) {
+        atEOF = true;
+        break;
+      }
+
+      startPosition = source.getPosition();
+      startOffset = source.getOffset();
+      lineNumber = source.getLineNo();
+      lexeme.setLength( 0 );
+
+      int state = TokenTable.START, next;
+      while(( next = TokenTable.next( state, ch )) >= 0 ) {
+        lexeme.append( (char) ch );
+        state = next;
+        ch = read();
+      }
+
+      if( state == TokenTable.START ) {
+        // no token starts with ch
+        lexeme.append( (char) ch );
+        ch = read();
+      }
+
+      endPosition = startPosition + lexeme.length() - 1;
+      Tokens kind = TokenTable.KIND[ state ];
+      literalValue = 0;
+      literalScale = 0;
+
+      if( kind == Tokens.Comment ) {
+        skipComment();
+        continue;
+      }
+
+      if( kind == Tokens.BogusToken ) {
+        illegal( lexeme.toString() );
+        if( !recovering ) {
+          break;
+        }
+        return kind;
+      }
+
+      if( kind == Tokens.INTeger || kind == Tokens.NumberLit || kind == Tokens.DateLit ) {
+        decodeLiteral( kind );
+      }
+
+      if( ch == SourceReader.EOF ) {
+        atEOF = true;
+      }
+
+      return kind;
+    }
+
+    if( source != null ) {
+      source.close();
+      source = null;
+    }
+    return null;
+  }
+
+  /**
+   *  @return a Token for the lexeme just scanned; when the source is in
+   *  memory its text is a view of the source rather than a copy, and
+   *  the Symbol is only looked up if somebody asks the Token for it
+   */
+  private Token lexemeToken( Tokens kind ) {
+    CharSequence text = startOffset >= 0 ? source.slice( startOffset, lexeme.length() ) : lexeme.toString();
+    return new Token( startPosition, endPosition, lineNumber, kind, text, literalValue, literalScale );
+  }
+
+  /**
+   *  keep the value of the literal just scanned for its Token; a value
+   *  too large for a long is reported and the Token gets none
+   */
+  private void setLiteral( long value, int scale ) {
+    if( value < 0 ) {
+      errorOutput.println( "******** number too large: " +
+              lexeme + " left: " + startPosition + " right: " + endPosition + " line: "+ lineNumber + " current error line:" + source.getLine());
+      report( Diagnostic.Kind.NUMBER_TOO_LARGE, lexeme.toString() );
+      value = 0;
+      scale = -1;
+    }
+
+    literalValue = value;
+    literalScale = scale;
+  }
+
+  /**
+   *  @return value with the digit ch added to its right, or -1 if that
+   *  does not fit in a long or value already did not
+   */
+  private static long addDigit( long value, int ch ) {
+    int digit = Character.digit( ch, 10 );
+    if( value < 0 || value > ( Long.MAX_VALUE - digit ) / 10 ) {
+      return -1;
+    }
+    return value * 10 + digit;
+  }
+
+  /**
+   *  decode the literal the table engine just accepted in lexeme; the
+   *  DFA has already checked its form, so only its digits and the
+   *  separators between them are looked at
+   */
+  private void decodeLiteral( Tokens kind ) {
+    long value = 0, first = 0, second = 0;
+    int separators = 0, scale = 0;
+
+    for( int i = 0; i < lexeme.length(); i++ ) {
+      char c = lexeme.charAt( i );
+
+      if( c == '.' || c == '~' ) {
+        if( separators++ == 0 ) {
+          first = value;
+        } else {
+          second = value;
+        }
+        // the digits after the point are part of a NumberLit's value
+        if( kind != Tokens.NumberLit ) {
+          value = 0;
+        }
+      } else {
+        value = addDigit( value, c );
+        if( separators > 0 ) {
+          scale++;
+        }
+      }
+    }
+
+    if( kind == Tokens.NumberLit ) {
+      setLiteral( value, scale );
+    } else if( kind == Tokens.DateLit ) {
+      setLiteral( value * 10000 + first * 100 + second, 0 );
+    } else {
+      // an INTeger may be followed by a separator, e.g. 3. or 1~2
+      setLiteral( separators == 0 ? value : first, 0 );
+    }
+  }
+
+  /**
+   *  @return the Symbol for the lexeme just scanned; keywords and
+   *  operators have theirs in TokenType already
+   */
+  private Symbol lexemeSymbol( Tokens kind ) {
+    Symbol symbol = TokenType.tokens.get( kind );
+    if( symbol != null && symbol.toString().contentEquals( lexeme )) {
+      return symbol;
+    }
+    return Symbol.symbol( lexeme.toString(), kind );
+  }
+
+  private Token getIdToken() {
+    // return tokens for ids and reserved words
+    lexeme.setLength( 0 );
+    literalValue = 0;
+    literalScale = 0;
+
+    do {
+      endPosition++;
+      lexeme.append( (char) ch );
+
+      if( runs != null ) {
+        int end = skipRun( RunFinder.IDENTIFIER_PART );
+        lexeme.append( runChars, runFrom, end - runFrom );
+        endPosition += end - runFrom;
+      }
+
+      ch = read();
+    } while( CharClass.isIdentifierPart( ch ));
+
+    if( ch == SourceReader.EOF ) {
+      atEOF = true;
+    }
+
+    // keywords are found in the perfect hash TokenSetup generates, so
+    // no String is made for the identifier
+    return lexemeToken( Keywords.kind( lexeme ));
+  }
+
+  /**
+   * Handle and return the Integer/Date/Number token.
+   *
+   * @return token of types found.
+   */
+  private Token getDigitToken() {
+    // Set default value to Integer
+    lexeme.setLength( 0 );
+    int digits = readInteger( 0 );
+    long value = digitsValue;
+    int scale = 0;
+    Tokens kind = Tokens.INTeger;
+
+    // Handle the case of Number or Date; the parts are checked by the
+    // number of digits in them and their values are added up as they
+    // are read
+    if ('.' == ch || '~' == ch) {
+      boolean point = '.' == ch;
+      long month = value;
+      readSeparator();
+      int fraction = readInteger( point ? value : 0 );
+
+      if (point && fraction > 0) { // Number case
+        kind = Tokens.NumberLit;
+        value = digitsValue;
+        scale = fraction;
+      } else if ('~' == ch) {  // Date case
+        int dayDigits = fraction;
+        long day = digitsValue;
+        readSeparator();
+        int yearDigits = readInteger( 0 );
+
+        if (!point && digits <= 2 && dayDigits >= 1 && dayDigits <= 2
+                && (yearDigits == 1 || yearDigits == 2 || yearDigits == 4)) {
+          kind = Tokens.DateLit;
+          value = digitsValue * 10000 + month * 100 + day;
+        } else {
+          illegal( lexeme.toString() );
+          return errorToken();
+        }
+
+      }
+    }
+
+    setLiteral( value, scale );
+
+    if (ch == SourceReader.EOF) {
+      atEOF = true;
+    }
+
+    return lexemeToken( kind );
+  }
+
+  /**
+   * Add the '.' or '~' in ch to the lexeme.
+   */
+  private void readSeparator() {
+    endPosition++;
+    lexeme.append((char) ch);
+    ch = read();
+  }
+
+  /**
+   * Read the digits starting at the current character, which may be
+   * none, onto the lexeme; their value is left in digitsValue.
+   *
+   * @param value is the value of the digits before them, e.g. those
+   * before the point of a number
+   * @return the number of digits read.
+   */
+  private int readInteger(long value) {
+    int count = 0;
+    while (CharClass.isDigit(ch)) {
+      endPosition++;
+      lexeme.append((char) ch);
+      value = addDigit(value, ch);
+      count++;
+
+      if (runs != null) {
+        int end = skipRun(RunFinder.DIGIT);
+        for (int i = runFrom; i < end; i++) {
+          value = addDigit(value, runChars[i]);
+        }
+        lexeme.append(runChars, runFrom, end - runFrom);
+        count += end - runFrom;
+        endPosition += end - runFrom;
+      }
+
+      ch = read();
+    }
+
+    digitsValue = value;
+    return count;
+  }
+
+  /**
+   *  Scan all of the remaining tokens into buffer, splitting a source
+   *  held in memory at line boundaries into chunks that are lexed at the
+   *  same time on pool (see ChunkTask); the tokens, the messages written
+   *  to the error output and the Diagnostics are the same and in the
+   *  same order as tokenize( buffer ) gives, and unless the Lexer is
+   *  recovering nothing after an illegal character is kept.  Other
+   *  sources, or a Lexer with a listener, which expects the lines in
+   *  order, are scanned by tokenize( buffer )
+   *
+   *  @param buffer is where the tokens are added
+   *  @param pool runs the chunks, e.g. ForkJoinPool.commonPool()
+   *  @return the number of tokens added
+   */
+  public int tokenize( TokenBuffer buffer, ForkJoinPool pool ) {
+    if( listener != LexerListener.NONE || !( source instanceof MemorySourceReader )) {
+      return tokenize( buffer );
+    }
+
+    // the chunks report their errors on their own until they are put together
+    PrintStream out = errorOutput;
+    List<Diagnostic> found = new ArrayList<>();
+    int count = 0;
+
+    for( ChunkTask.Chunk chunk : pool.invoke( new ChunkTask( this ))) {
+      buffer.addAll( chunk.tokens );
+      count += chunk.tokens.size();
+      out.print( chunk.errors );
+      // the first chunk is this Lexer's, whose list has the earlier errors
+      found.addAll( chunk.diagnostics );
+
+      if( chunk.failed ) {
+        failed = true;
+        break;
+      }
+    }
+
+    errorOutput = out;
+    diagnostics = found.isEmpty() ? null : found;
+    return count;
+  }
+
+  public static void main(String[] args) {
+
+    String mode = "";
+    boolean echo = false, prefetch = false, table = false, vector = false, parallel = false, recover = false;
+    int arg = 0;
+
+    for (; arg < args.length && args[arg].startsWith("-"); arg++) {
+      if (args[arg].equals("-mmap") || args[arg].equals("-stream")) {
+        mode = args[arg];
+      } else if (args[arg].equals("-echo")) {
+        echo = true;
+      } else if (args[arg].equals("-table")) {
+        table = true;
+      } else if (args[arg].equals("-vector")) {
+        vector = true;
+      } else if (args[arg].equals("-parallel")) {
+        parallel = true;
+      } else if (args[arg].equals("-recover")) {
+        recover = true;
+      } else if (args[arg].equals("-prefetch")) {
+        // read ahead of the scanner, which implies streaming
+        mode = "-stream";
+        prefetch = true;
+      } else {
+        break;
+      }
+    }
+
+    if (arg == args.length || args[arg].startsWith("-")){
+      usage();
+      return;
+    }
+
+    String filePath = args[arg];
+    Engine engine = table ? Engine.TABLE : vector ? Engine.VECTOR : Engine.SCALAR;
+    boolean recovering = recover;
+
+    if (vector && !isVectorAvailable()) {
+      System.err.println("vector: jdk.incubator.vector is not available, the runs are found a character at a time");
+    }
+
+    if (arg < args.length - 1 || BatchLexer.isBatchOperand(filePath)) {
+      // the files are already lexed at the same time and the output of
+      // each is printed whole, so there is nothing to echo or split
+      if (echo || parallel) {
+        usage();
+        return;
+      }
+      BatchLexer.Input input = mode.equals("-mmap") ? BatchLexer.Input.MAPPED
+          : prefetch ? BatchLexer.Input.PREFETCHED
+          : mode.equals("-stream") ? BatchLexer.Input.STREAMED : BatchLexer.Input.MEMORY;
+      BatchLexer.run(Arrays.asList(args).subList(arg, args.length), input, engine, recover, System.out);
+      return;
+    }
+
+    if (SourceArchive.isZip(filePath)) {
+      // the tokens of each entry are printed under its name
+      try (AsyncLineLogger logger = echo ? new AsyncLineLogger() : null) {
+        SourceArchive.forEachEntry(filePath, (name, lex) -> {
+          System.out.println("==== " + name);
+          lex.setEngine(engine);
+          lex.setRecovering(recovering);
+          if (logger != null) {
+            lex.setListener(logger);
+          }
+          printTokens(lex, System.out);
+        });
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      return;
+    }
+
+    // unless the file is mapped or streamed the listing comes from the
+    // lexer's buffer
+    MemorySourceReader memory = null;
+    PrefetchReader prefetcher = null;
+
+    try (AsyncLineLogger logger = echo ? new AsyncLineLogger() : null) {
+      SourceReader reader;
+
+      if (mode.equals("-mmap") && !SourceArchive.isGzip(filePath)) {
+        reader = new MappedSourceReader(filePath);
+      } else if (prefetch) {
+        reader = new StreamingSourceReader(prefetcher = new PrefetchReader(openSource(filePath)));
+      } else if (mode.equals("-stream")) {
+        reader = new StreamingSourceReader(openSource(filePath));
+      } else {
+        reader = memory = new MemorySourceReader(openSource(filePath));
+      }
+
+      Lexer lex = new Lexer(reader);
+      lex.setEngine(engine);
+      lex.setRecovering(recover);
+
+      if (logger != null) {
+        lex.setListener(logger);
+      }
+
+      if (parallel) {
+        // the error messages are kept apart and put back among the
+        // tokens where the sequential scan prints them
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        lex.setErrorOutput(new PrintStream(errors, true));
+        TokenBuffer buffer = new TokenBuffer();
+        lex.tokenize(buffer, ForkJoinPool.commonPool());
+
+        printTokens(buffer, lex.getDiagnostics(), errors.toString().split(System.lineSeparator()), recover, System.out);
+      } else {
+        printTokens(lex, System.out);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+
+    if (prefetcher != null) {
+      System.err.printf("prefetch: scanner waited %.3f ms for input%n", prefetcher.getWaitNanos() / 1e6);
+    }
+
+    if (memory != null) {
+      for (int line = 1; line <= memory.getLineCount(); line++) {
+        System.out.printf( "%3d: %s%n", line, memory.getLine(line));
+      }
+      return;
+    }
+
+    try (LineNumberReader lineReader = new LineNumberReader(openSource(filePath))){
+      String lineText;
+
+      while ((lineText = lineReader.readLine()) != null) {
+        System.out.printf( "%3d: %s%n",lineReader.getLineNumber(), lineText);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+  }
+
+  private static void usage() {
+    System.out.println("usage: java lexer.Lexer [-mmap | -stream | -prefetch] [-echo] [-table | -vector] [-parallel] [-recover] filename.x");
+    System.out.println("       java lexer.Lexer [-mmap | -stream | -prefetch] [-table | -vector] [-recover] file|directory|glob ...");
+  }
+
+  /**
+   *  @return a Reader for the source file, decompressing it if it is a .gz
+   */
+  static Reader openSource(String filePath) throws IOException {
+    return SourceArchive.isGzip(filePath) ? SourceArchive.openGzip(filePath) : new FileReader(filePath);
+  }
+
+  /**
+   *  print the tokens of lex one per line
+   *
+   *  @return the number of tokens printed
+   */
+  static int printTokens(Lexer lex, PrintStream out) {
+    int count = 0;
+
+    for (Token token : lex) {
+      printToken(token, out);
+      count++;
+    }
+
+    return count;
+  }
+
+  /**
+   *  print the tokens in buffer one per line as printTokens( lex, out )
+   *  does, with the error messages where the sequential scan prints them:
+   *  the message of each Diagnostic comes before the token it is about,
+   *  followed by the ErrorToken a recovering Lexer gives for an illegal
+   *  character or date, which tokenize leaves out of the buffer
+   *
+   *  @param messages are the lines written to the error output, one for
+   *  each of the diagnostics
+   */
+  private static void printTokens(TokenBuffer buffer, List<Diagnostic> diagnostics, String[] messages,
+      boolean recovering, PrintStream out) {
+    int next = 0;
+
+    for (int index = 0; index < buffer.size(); index++) {
+      int line = buffer.getLineNumber(index), left = buffer.getLeftPosition(index);
+
+      while (next < diagnostics.size() && ( diagnostics.get(next).getLineNumber() < line
+          || diagnostics.get(next).getLineNumber() == line && diagnostics.get(next).getLeftPosition() <= left )) {
+        printError(diagnostics.get(next), messages[next], recovering, out);
+        next++;
+      }
+      printToken(buffer.getToken(index), out);
+    }
+
+    for (; next < diagnostics.size(); next++) {
+      printError(diagnostics.get(next), messages[next], recovering, out);
+    }
+  }
+
+  private static void printError(Diagnostic diagnostic, String message, boolean recovering, PrintStream out) {
+    out.println(message);
+    if (recovering && diagnostic.getKind() != Diagnostic.Kind.NUMBER_TOO_LARGE) {
+      printToken(new ErrorToken(diagnostic), out);
+    }
+  }
+
+  private static void printToken(Token token, PrintStream out) {
+    out.printf("%-11s left: %-8d right: %-8d line: %-8d %s%n",
+            token, token.getLeftPosition(), token.getRightPosition(), token.getLineNumber(), token.getKind());
+  }
+
 }
\ No newline at end of file
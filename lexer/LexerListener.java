@@ -0,0 +1,43 @@
+package lexer;
+
+/**
+ *  LexerListener is notified as the source is read and scanned; it
+ *  replaces the hard wired READLINE echo so tracing costs nothing unless
+ *  a listener is registered: the default NONE listener has empty methods
+ *  which the JIT inlines away, and callers only build the arguments
+ *  (e.g. the text of a mapped line) when a real listener is present.
+ *  All methods have empty defaults so a listener only overrides the
+ *  events it cares about.
+ */
+public interface LexerListener {
+
+  /**
+   *  The listener used when none is registered
+   */
+  LexerListener NONE = new LexerListener() { };
+
+  /**
+   *  called when the SourceReader starts a new line of the source
+   *  @param lineNumber is the number of the line just read
+   *  @param line is the text of the line
+   */
+  default void lineRead( int lineNumber, CharSequence line ) {
+  }
+
+  /**
+   *  called for every token the Lexer returns from nextToken
+   *  @param token is the token just scanned
+   */
+  default void tokenEmitted( Token token ) {
+  }
+
+  /**
+   *  called when the Lexer finds an illegal character or literal
+   *  @param message describes the error
+   *  @param lineNumber is the line of the error
+   *  @param leftPosition is the column where the bad token begins
+   *  @param rightPosition is the column where the bad token ends
+   */
+  default void error( String message, int lineNumber, int leftPosition, int rightPosition ) {
+  }
+}
@@ -0,0 +1,94 @@
+package lexer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ *  A LexerPool keeps Lexers that are done with to lex the next source,
+ *  for a service that lexes many small sources a second from many
+ *  threads: acquire() resets a pooled Lexer to the source, or makes one
+ *  if none is free, and release() gives it back.  A Lexer reused this
+ *  way keeps its buffers and the line index of its reader, so in the
+ *  steady state only the tokens are allocated.
+ *  <pre>
+ *  Lexer lexer = pool.acquire( text );
+ *  try {
+ *    ...
+ *  } finally {
+ *    pool.release( lexer );
+ *  }
+ *  </pre>
+ *  A Lexer must not be used after it is released.
+ */
+public class LexerPool {
+  // the free Lexers; taking and putting back does not allocate
+  private final ArrayBlockingQueue<Lexer> free;
+  private final Lexer.Engine engine;
+
+  /**
+   *  @param capacity is the most Lexers kept free; more can be in use,
+   *  the ones released when the pool is full are dropped
+   *  @param engine is the engine of every Lexer of the pool
+   */
+  public LexerPool( int capacity, Lexer.Engine engine ) {
+    free = new ArrayBlockingQueue<>( capacity );
+    this.engine = engine;
+  }
+
+  /**
+   *  @param capacity is the most Lexers kept free
+   */
+  public LexerPool( int capacity ) {
+    this( capacity, Lexer.Engine.SCALAR );
+  }
+
+  /**
+   *  @param text is the program source; it is lexed in place, not copied
+   *  @return a Lexer for the source held in text
+   */
+  public Lexer acquire( CharSequence text ) {
+    Lexer lexer = take();
+    lexer.reset( text );
+    return lexer;
+  }
+
+  /**
+   *  @param chars holds the program source; it is lexed in place, not copied
+   *  @param offset is the index of the first char of the source
+   *  @param length is the number of chars in the source
+   *  @return a Lexer for the source held in chars
+   */
+  public Lexer acquire( char[] chars, int offset, int length ) {
+    Lexer lexer = take();
+    lexer.reset( chars, offset, length );
+    return lexer;
+  }
+
+  /**
+   *  give lexer back to the pool; its listener, error output and
+   *  recovery mode are set back to the defaults and it lets go of its
+   *  source
+   */
+  public void release( Lexer lexer ) {
+    lexer.setListener( LexerListener.NONE );
+    lexer.setErrorOutput( System.out );
+    lexer.setRecovering( false );
+    lexer.reset( "" );
+    free.offer( lexer );
+  }
+
+  /**
+   *  @return the number of Lexers free in the pool
+   */
+  public int size() {
+    return free.size();
+  }
+
+  private Lexer take() {
+    Lexer lexer = free.poll();
+    if( lexer == null ) {
+      lexer = Lexer.of( "" );
+      lexer.setEngine( engine );
+    }
+    return lexer;
+  }
+}
@@ -0,0 +1,246 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  A SourceReader that maps the whole source file into memory with
+ *  FileChannel.map and scans the mapped UTF-8 bytes directly; lines are
+ *  never copied into Strings, the current line is only decoded when
+ *  getLine() is asked for it (e.g. for an error message).
+ *  <p>
+ *  It can scan any buffer of UTF-8 bytes the same way, e.g. a request
+ *  body held in a byte[].  ASCII bytes are returned as they are; only a
+ *  byte with the high bit set goes through the multi-byte decoder, and a
+ *  supplementary character is returned as two chars so the columns
+ *  match those of a Reader over the same text.
+ */
+public class MappedSourceReader extends SourceReader {
+  private ByteBuffer bytes;
+  // offset of the next byte to decode
+  private int offset;
+  // offset of the first byte of the current line
+  private int lineStart;
+  private int lineNumber = 0;
+  // position of last character processed
+  private int position;
+  // if true then last character read was newline so start the next line
+  private boolean isPriorEndLine = true;
+  // low half of a supplementary character still to be returned
+  private char pendingLowSurrogate;
+
+  /**
+   *  Construct a new MappedSourceReader
+   *  @param sourceFile the String describing the user's source file
+   *  @exception IOException is thrown if the file cannot be opened or mapped
+   */
+  public MappedSourceReader( String sourceFile ) throws IOException {
+    try( FileChannel channel = FileChannel.open( Paths.get( sourceFile ), StandardOpenOption.READ )) {
+      long size = channel.size();
+      if( size > Integer.MAX_VALUE ) {
+        throw new IOException( sourceFile + " is too large to map: " + size + " bytes" );
+      }
+      // the mapping stays valid after the channel is closed
+      bytes = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+    }
+  }
+
+  /**
+   *  Construct a new MappedSourceReader over a buffer of UTF-8 bytes
+   *  @param source holds the bytes from its position to its limit; they
+   *  are not copied
+   */
+  public MappedSourceReader( ByteBuffer source ) {
+    bytes = source.slice();
+  }
+
+  @Override
+  void close() {
+    // the mapping is released when the buffer is collected
+    bytes = null;
+  }
+
+  /**
+   *  read next char; track line #, character position in line<br>
+   *  return space for newline
+   *  @return the character just read in or EOF at end of file
+   */
+  @Override
+  public int read() {
+    if( isPriorEndLine ) {
+      lineNumber++;
+      position = -1;
+      lineStart = offset;
+      isPriorEndLine = false;
+
+      // only decode the line when somebody is listening
+      if( listener != LexerListener.NONE && offset < bytes.limit() ) {
+        listener.lineRead( lineNumber, getLine() );
+      }
+    }
+
+    if( pendingLowSurrogate != 0 ) {
+      char low = pendingLowSurrogate;
+      pendingLowSurrogate = 0;
+      position++;
+      return low;
+    }
+
+    if( offset >= bytes.limit() ) {
+      if( offset == lineStart ) {
+        // hit eof
+        return EOF;
+      }
+      // last line has no line terminator
+      isPriorEndLine = true;
+      position++;
+      return ' ';
+    }
+
+    int b = bytes.get( offset ) & 0xff;
+
+    if( b == '\n' || b == '\r' ) {
+      offset++;
+      if( b == '\r' && offset < bytes.limit() && bytes.get( offset ) == '\n' ) {
+        offset++;
+      }
+      isPriorEndLine = true;
+      // an empty line leaves the position at -1 like SourceReader does
+      if( position >= 0 ) {
+        position++;
+      }
+      return ' ';
+    }
+
+    position++;
+    if( b < 0x80 ) {
+      offset++;
+      return (char) b;
+    }
+
+    return decode( b );
+  }
+
+  /**
+   *  skip the rest of the current line by searching the bytes for its
+   *  terminator without decoding them
+   */
+  @Override
+  public void skipLine() {
+    if( isPriorEndLine ) {
+      return;
+    }
+
+    pendingLowSurrogate = 0;
+    int limit = bytes.limit();
+    while( offset < limit ) {
+      byte b = bytes.get( offset++ );
+      if( b == '\n' ) {
+        break;
+      }
+      if( b == '\r' ) {
+        if( offset < limit && bytes.get( offset ) == '\n' ) {
+          offset++;
+        }
+        break;
+      }
+    }
+    isPriorEndLine = true;
+  }
+
+  /**
+   *  decode the multi-byte UTF-8 sequence starting with lead byte b;
+   *  malformed input is replaced with U+FFFD.  The bytes one U+FFFD
+   *  stands for are those the JDK's UTF-8 decoder takes for it: the lead
+   *  byte and the continuation bytes before the first byte that cannot
+   *  follow them, so the columns are the same as a Reader gives
+   */
+  private char decode( int b ) {
+    int length, codePoint;
+    if( b >= 0xc2 && b <= 0xdf ) {
+      length = 2;
+      codePoint = b & 0x1f;
+    } else if( b >= 0xe0 && b <= 0xef ) {
+      length = 3;
+      codePoint = b & 0x0f;
+    } else if( b >= 0xf0 && b <= 0xf4 ) {
+      length = 4;
+      codePoint = b & 0x07;
+    } else {
+      offset++;
+      return '\uFFFD';
+    }
+
+    // the second byte rules out an overlong form or a code point past
+    // U+10FFFF, so E0, F0 and F4 take fewer of them
+    int low = b == 0xe0 ? 0xa0 : b == 0xf0 ? 0x90 : 0x80;
+    int high = b == 0xf4 ? 0x8f : 0xbf;
+
+    int i = 1;
+    for( ; i < length && offset + i < bytes.limit(); i++ ) {
+      int next = bytes.get( offset + i ) & 0xff;
+      if( next < low || next > high ) {
+        break;
+      }
+      codePoint = ( codePoint << 6 ) | ( next & 0x3f );
+      low = 0x80;
+      high = 0xbf;
+    }
+    offset += i;
+
+    // a surrogate is only found once all three of its bytes are read
+    if( i < length || length == 3 && Character.isSurrogate( (char) codePoint )) {
+      return '\uFFFD';
+    }
+
+    if( Character.isSupplementaryCodePoint( codePoint )) {
+      pendingLowSurrogate = Character.lowSurrogate( codePoint );
+      return Character.highSurrogate( codePoint );
+    }
+
+    return (char) codePoint;
+  }
+
+  /**
+   *  @return the position of the character just read in
+   */
+  @Override
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   *  @return the line number of the character just read in
+   */
+  @Override
+  public int getLineNo() {
+    return lineNumber;
+  }
+
+  /**
+   * Return the current line; it is decoded from the mapped bytes
+   * on every call so only ask for it when it is really needed.
+   *
+   * @return the current line or null at end of file.
+   */
+  @Override
+  public String getLine() {
+    if( bytes == null || lineStart >= bytes.limit() ) {
+      return null;
+    }
+
+    int end = lineStart;
+    while( end < bytes.limit() && bytes.get( end ) != '\n' && bytes.get( end ) != '\r' ) {
+      end++;
+    }
+
+    byte[] line = new byte[ end - lineStart ];
+    bytes.get( lineStart, line );
+    return new String( line, StandardCharsets.UTF_8 );
+  }
+
+}
@@ -0,0 +1,438 @@
+package lexer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ *  A SourceReader that holds the whole source program in a char[]
+ *  together with the offsets where each line starts; read() is an array
+ *  index and a line is just a slice of the buffer, so the same buffer can
+ *  also be used to print the program listing without reading the file
+ *  again.  Lines are split the same way as BufferedReader.readLine does.
+ *  <p>
+ *  A caller's char[] or CharSequence is used in place, not copied, so it
+ *  must not be changed while it is being lexed.
+ */
+public class MemorySourceReader extends SourceReader {
+  // the source is either in buffer or, when it is not backed by an
+  // array, in text
+  private char[] buffer;
+  private CharSequence text;
+  // the source is at [begin..end)
+  private int begin, end;
+  // lineStarts[i] is the offset of the first character of line i+1; it
+  // is kept for the next source by reset() unless split() shared it
+  private int[] lineStarts;
+  private int lineCount;
+  private boolean sharedIndex;
+  // the reader ends after this line; less than lineCount if the lines
+  // after it were split off, see split()
+  private int lastLine;
+  // line number of source program
+  private int lineNumber = 0;
+  // position of last character processed
+  private int position;
+  // if true then last character read was newline so start the next line
+  private boolean isPriorEndLine = true;
+  // the current line is at [lineStart..lineStart+lineLength)
+  private int lineStart, lineLength;
+
+  /**
+   *  Construct a new MemorySourceReader by reading all of the file; it is
+   *  not a constructor as a String passed to one is the source itself
+   *  @param sourceFile the String describing the user's source file
+   *  @exception IOException is thrown if there is an I/O problem
+   */
+  public static MemorySourceReader fromFile( String sourceFile ) throws IOException {
+    return new MemorySourceReader( load( sourceFile ));
+  }
+
+  /**
+   *  Construct a new MemorySourceReader over part of a char[]
+   *  @param chars holds the source; it is not copied
+   *  @param offset is the index of the first char of the source
+   *  @param length is the number of chars in the source
+   */
+  public MemorySourceReader( char[] chars, int offset, int length ) {
+    this( CharBuffer.wrap( chars, offset, length ));
+  }
+
+  /**
+   *  Construct a new MemorySourceReader over a CharSequence
+   *  @param source holds the source; it is not copied
+   */
+  public MemorySourceReader( CharSequence source ) {
+    reset( source );
+  }
+
+  /**
+   *  Start again from the first line of another source; the arrays of
+   *  the line index are kept, so a reader used for many sources does not
+   *  allocate once they fit
+   *  @param source holds the source; it is not copied
+   */
+  void reset( CharSequence source ) {
+    if( source instanceof CharBuffer && ((CharBuffer) source).hasArray() ) {
+      CharBuffer chars = (CharBuffer) source;
+      int offset = chars.arrayOffset() + chars.position();
+      open( chars.array(), null, offset, offset + chars.remaining() );
+    } else {
+      open( null, source, 0, source.length() );
+    }
+  }
+
+  /**
+   *  Start again from the first line of the source in part of a char[]
+   *  @param chars holds the source; it is not copied
+   *  @param offset is the index of the first char of the source
+   *  @param length is the number of chars in the source
+   */
+  void reset( char[] chars, int offset, int length ) {
+    Objects.checkFromIndexSize( offset, length, chars.length );
+    open( chars, null, offset, offset + length );
+  }
+
+  private void open( char[] buffer, CharSequence text, int begin, int end ) {
+    this.buffer = buffer;
+    this.text = text;
+    this.begin = begin;
+    this.end = end;
+    lineNumber = 0;
+    position = 0;
+    isPriorEndLine = true;
+    lineStart = 0;
+    lineLength = 0;
+    indexLines();
+    lastLine = lineCount;
+  }
+
+  /**
+   *  Construct a MemorySourceReader for lines [firstLine..lastLine] of
+   *  whole, which keep their line numbers and offsets
+   */
+  private MemorySourceReader( MemorySourceReader whole, int firstLine, int lastLine ) {
+    buffer = whole.buffer;
+    text = whole.text;
+    begin = whole.begin;
+    end = whole.end;
+    // the index is not changed while it is shared
+    lineStarts = whole.lineStarts;
+    lineCount = whole.lineCount;
+    sharedIndex = true;
+    lineNumber = firstLine - 1;
+    this.lastLine = lastLine;
+  }
+
+  private char charAt( int i ) {
+    return buffer != null ? buffer[ i ] : text.charAt( i );
+  }
+
+  /**
+   *  @return a read only view of length chars of the source starting at
+   *  start
+   */
+  @Override
+  CharSequence slice( int start, int length ) {
+    return new Slice( buffer, text, start, length );
+  }
+
+  /**
+   *  A view of part of the source, e.g. the text of a Token; unlike a
+   *  CharBuffer it has no position for a reader to move and no put(), so
+   *  a Token's text cannot be changed through it
+   */
+  private static final class Slice implements CharSequence {
+    // the source is either in chars or, when it is not backed by an
+    // array, in text
+    private final char[] chars;
+    private final CharSequence text;
+    private final int start, length;
+
+    Slice( char[] chars, CharSequence text, int start, int length ) {
+      this.chars = chars;
+      this.text = text;
+      this.start = start;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt( int index ) {
+      Objects.checkIndex( index, length );
+      return chars != null ? chars[ start + index ] : text.charAt( start + index );
+    }
+
+    @Override
+    public CharSequence subSequence( int from, int to ) {
+      Objects.checkFromToIndex( from, to, length );
+      return new Slice( chars, text, start + from, to - from );
+    }
+
+    @Override
+    public String toString() {
+      return chars != null ? new String( chars, start, length ) : text.subSequence( start, start + length ).toString();
+    }
+  }
+
+  /**
+   *  Construct a new MemorySourceReader by reading all of a Reader,
+   *  e.g. a decompressing one; the reader is closed
+   *  @param reader supplies the source
+   *  @exception IOException is thrown if there is an I/O problem
+   */
+  public MemorySourceReader( Reader reader ) throws IOException {
+    this( load( reader, 8192 ));
+  }
+
+  /**
+   *  read the whole file; the file length in bytes is an upper bound for
+   *  its length in chars so usually the file is read in a single pass
+   */
+  private static CharBuffer load( String sourceFile ) throws IOException {
+    FileInputStream in = new FileInputStream( sourceFile );
+    return load( new InputStreamReader( in ), in.getChannel().size() + 1 );
+  }
+
+  private static CharBuffer load( Reader reader, long sizeHint ) throws IOException {
+    try( reader ) {
+      char[] chars = new char[ (int) Math.min( Integer.MAX_VALUE - 8, sizeHint ) ];
+      int length = 0, count;
+
+      while(( count = reader.read( chars, length, chars.length - length )) >= 0 ) {
+        length += count;
+        if( length == chars.length ) {
+          chars = Arrays.copyOf( chars, chars.length * 2 );
+        }
+      }
+
+      return CharBuffer.wrap( chars, 0, length );
+    }
+  }
+
+  private void indexLines() {
+    if( lineStarts == null || sharedIndex ) {
+      lineStarts = new int[ 16 ];
+      sharedIndex = false;
+    }
+    lineCount = 0;
+    int start = begin;
+
+    for( int i = begin; i < end; i++ ) {
+      char c = charAt( i );
+
+      if( c == '\n' || c == '\r' ) {
+        if( c == '\r' && i + 1 < end && charAt( i + 1 ) == '\n' ) {
+          i++;
+        }
+        addLine( start );
+        start = i + 1;
+      }
+    }
+
+    // last line without a line terminator
+    if( start < end ) {
+      addLine( start );
+    }
+  }
+
+  private void addLine( int start ) {
+    if( lineCount == lineStarts.length ) {
+      lineStarts = Arrays.copyOf( lineStarts, lineCount * 2 );
+    }
+    lineStarts[ lineCount++ ] = start;
+  }
+
+  /**
+   *  read next char; track line #, character position in line<br>
+   *  return space for newline
+   *  @return the character just read in or EOF at end of file
+   */
+  @Override
+  public int read() {
+    if( lineNumber > lastLine ) {
+      // already at eof
+      return EOF;
+    }
+
+    if( isPriorEndLine ) {
+      lineNumber++;
+      position = -1;
+      isPriorEndLine = false;
+
+      if( lineNumber > lastLine ) {
+        // hit eof
+        return EOF;
+      }
+
+      lineStart = lineStarts[ lineNumber - 1 ];
+      lineLength = lineEnd( lineNumber ) - lineStart;
+
+      if( listener != LexerListener.NONE ) {
+        listener.lineRead( lineNumber, slice( lineStart, lineLength ));
+      }
+    }
+
+    if( lineLength == 0 ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    position++;
+    if( position >= lineLength ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    return charAt( lineStart + position );
+  }
+
+  /**
+   *  skip the rest of the current line; the line index already says
+   *  where the next one starts
+   */
+  @Override
+  public void skipLine() {
+    isPriorEndLine = true;
+  }
+
+  /**
+   *  split off the second half of the lines not read yet; this reader
+   *  ends before them
+   *
+   *  @return a reader for the lines split off, or null if fewer than 2
+   *  lines are left after the current one
+   */
+  MemorySourceReader split() {
+    if( lastLine - lineNumber < 2 ) {
+      return null;
+    }
+
+    int middle = lineNumber + 1 + ( lastLine - lineNumber ) / 2;
+    MemorySourceReader rest = new MemorySourceReader( this, middle, lastLine );
+    sharedIndex = true;
+    rest.listener = listener;
+    lastLine = middle - 1;
+    return rest;
+  }
+
+  /**
+   *  @return the number of chars from the current one to the end of the
+   *  last line of this reader
+   */
+  int remaining() {
+    if( lineNumber > lastLine || lineNumber == lastLine && isPriorEndLine ) {
+      return 0;
+    }
+    // lineStarts[ lineNumber ] is where the next line starts
+    int from = isPriorEndLine ? lineStarts[ lineNumber ] : lineStart + Math.max( position, 0 );
+    return Math.max( 0, lineEnd( lastLine ) - from );
+  }
+
+  /**
+   *  @return the offset just past the text of line n, i.e. the offset of
+   *  its line terminator
+   */
+  private int lineEnd( int n ) {
+    if( n == lineCount ) {
+      int last = end;
+      // the last line may or may not be terminated
+      if( last > lineStarts[ n - 1 ] && charAt( last - 1 ) == '\n' ) {
+        last--;
+      }
+      if( last > lineStarts[ n - 1 ] && charAt( last - 1 ) == '\r' ) {
+        last--;
+      }
+      return last;
+    }
+
+    int next = lineStarts[ n ] - 1;
+    if( charAt( next ) == '\n' && next > lineStarts[ n - 1 ] && charAt( next - 1 ) == '\r' ) {
+      next--;
+    }
+    return next;
+  }
+
+  /**
+   *  @return the position of the character just read in
+   */
+  @Override
+  int getOffset() {
+    return lineStart + position;
+  }
+
+  /**
+   *  @return the char[] the source is in, or null if it is not backed by
+   *  an array; offsets from getOffset() are indexes into it
+   */
+  char[] array() {
+    return buffer;
+  }
+
+  /**
+   *  @return the offset just past the text of the current line
+   */
+  int currentLineEnd() {
+    return lineStart + lineLength;
+  }
+
+  /**
+   *  skip count characters of the current line without reading them,
+   *  e.g. a run the Lexer has already looked at in array(); the run must
+   *  not go past the end of the line
+   */
+  void skip( int count ) {
+    position += count;
+  }
+
+  @Override
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   *  @return the line number of the character just read in
+   */
+  @Override
+  public int getLineNo() {
+    return lineNumber;
+  }
+
+  /**
+   * Return the current line.
+   *
+   * @return the current line or null at end of file.
+   */
+  @Override
+  public String getLine() {
+    if( lineNumber < 1 || lineNumber > lastLine ) {
+      return null;
+    }
+    return slice( lineStart, lineLength ).toString();
+  }
+
+  /**
+   *  @return the number of lines in the source
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   *  @param n is the number of a line; the first line is 1
+   *  @return the text of line n without its line terminator
+   */
+  public String getLine( int n ) {
+    int start = lineStarts[ n - 1 ];
+    return slice( start, lineEnd( n ) - start ).toString();
+  }
+
+}
@@ -0,0 +1,78 @@
+package lexer;
+ 
+/**
+ *  This file is automatically generated<br>
+ *  it contains the kinds of the operators and separators indexed
+ *  by their first and second characters, so the hand written scanner
+ *  finds them without making a String
+*/
+final class Operators {
+  // the kind of each one character token and, for each character
+  // that starts a two character token, the kinds by second character
+  private static final Tokens[] SINGLE = new Tokens[ 126 ];
+  private static final Tokens[][] DOUBLE = new Tokens[ 126 ][];
+ 
+  static {
+    SINGLE[ '{' ] = Tokens.LeftBrace;
+    SINGLE[ '}' ] = Tokens.RightBrace;
+    SINGLE[ '(' ] = Tokens.LeftParen;
+    SINGLE[ ')' ] = Tokens.RightParen;
+    SINGLE[ '[' ] = Tokens.LeftBracket;
+    SINGLE[ ']' ] = Tokens.RightBracket;
+    SINGLE[ ',' ] = Tokens.Comma;
+    SINGLE[ '=' ] = Tokens.Assign;
+    SINGLE[ '>' ] = Tokens.Greater;
+    SINGLE[ '<' ] = Tokens.Less;
+    SINGLE[ '+' ] = Tokens.Plus;
+    SINGLE[ '-' ] = Tokens.Minus;
+    SINGLE[ '|' ] = Tokens.Or;
+    SINGLE[ '&' ] = Tokens.And;
+    SINGLE[ '*' ] = Tokens.Multiply;
+    SINGLE[ '/' ] = Tokens.Divide;
+    DOUBLE[ '=' ] = new Tokens[ 126 ];
+    DOUBLE[ '=' ][ '=' ] = Tokens.Equal;
+    DOUBLE[ '!' ] = new Tokens[ 126 ];
+    DOUBLE[ '!' ][ '=' ] = Tokens.NotEqual;
+    DOUBLE[ '>' ] = new Tokens[ 126 ];
+    DOUBLE[ '>' ][ '=' ] = Tokens.GreaterEqual;
+    DOUBLE[ '<' ] = new Tokens[ 126 ];
+    DOUBLE[ '<' ][ '=' ] = Tokens.LessEqual;
+    DOUBLE[ '/' ] = new Tokens[ 126 ];
+    DOUBLE[ '/' ][ '/' ] = Tokens.Comment;
+  }
+ 
+  private Operators() {
+  }
+ 
+  /**
+   *  @return the kind of the one character token first, or null if
+   *  it is not one
+   */
+  static Tokens single( int first ) {
+    return first >= 0 && first < SINGLE.length ? SINGLE[ first ] : null;
+  }
+ 
+  /**
+   *  @return the kind of the two character token first second, or
+   *  null if it is not one
+   */
+  static Tokens pair( int first, int second ) {
+    if( first < 0 || first >= DOUBLE.length || second < 0 || second >= DOUBLE.length ) {
+      return null;
+    }
+    Tokens[] seconds = DOUBLE[ first ];
+    return seconds != null ? seconds[ second ] : null;
+  }
+ 
+  /**
+   *  @return the kind of the operator or separator text, or null if
+   *  it is not one
+   */
+  static Tokens kind( CharSequence text ) {
+    switch( text.length() ) {
+      case 1: return single( text.charAt( 0 ));
+      case 2: return pair( text.charAt( 0 ), text.charAt( 1 ));
+      default: return null;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ *  A Reader that reads ahead of its consumer on a background thread with
+ *  two buffers: while the scanner works through one block the next one is
+ *  filled, so a slow volume (e.g. a network mount) and the scanner overlap
+ *  instead of taking turns.  Wrap the Reader given to a StreamingSourceReader
+ *  or SourceReader with it; getWaitNanos() tells how long the scanner was
+ *  blocked waiting for data anyway.
+ */
+public class PrefetchReader extends Reader {
+  private static class Block {
+    final char[] chars;
+    int count;
+    // true if the source ended or failed after these chars
+    boolean last;
+    // set if the source failed while this block was being filled
+    IOException error;
+
+    Block( int size ) {
+      chars = new char[ size ];
+    }
+  }
+
+  private final Reader source;
+  // blocks filled by the prefetch thread and those handed back to it
+  private final BlockingQueue<Block> full = new ArrayBlockingQueue<>( 2 );
+  private final BlockingQueue<Block> empty = new ArrayBlockingQueue<>( 2 );
+  private final Thread prefetcher;
+  // the block being read and the next char to return from it
+  private Block current;
+  private int next;
+  private long waitNanos = 0;
+
+  /**
+   *  Create a PrefetchReader that reads 64K char blocks
+   *  @param source supplies the chars
+   */
+  public PrefetchReader( Reader source ) {
+    this( source, 65536 );
+  }
+
+  /**
+   *  @param source supplies the chars
+   *  @param blockSize is the number of chars read ahead at a time
+   */
+  public PrefetchReader( Reader source, int blockSize ) {
+    this.source = source;
+    empty.add( new Block( blockSize ));
+    empty.add( new Block( blockSize ));
+    prefetcher = new Thread( this::prefetch, "lexer-prefetch" );
+    prefetcher.setDaemon( true );
+    prefetcher.start();
+  }
+
+  private void prefetch() {
+    try {
+      while( true ) {
+        Block block = empty.take();
+        int count = 0, n = 0;
+
+        try {
+          while( count < block.chars.length
+              && ( n = source.read( block.chars, count, block.chars.length - count )) >= 0 ) {
+            count += n;
+          }
+        } catch( IOException e ) {
+          block.error = e;
+        }
+
+        block.count = count;
+        block.last = n < 0 || block.error != null;
+        full.put( block );
+
+        if( block.last ) {
+          return;
+        }
+      }
+    } catch( InterruptedException e ) {
+      // closed
+    }
+  }
+
+  @Override
+  public int read( char[] chars, int offset, int length ) throws IOException {
+    if( length == 0 ) {
+      return 0;
+    }
+
+    while( current == null || next == current.count ) {
+      if( current != null ) {
+        if( current.last ) {
+          // a failure is reported once the chars read before it are used up
+          if( current.error != null ) {
+            throw current.error;
+          }
+          return -1;
+        }
+        empty.add( current );
+      }
+
+      long start = System.nanoTime();
+      try {
+        current = full.take();
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      waitNanos += System.nanoTime() - start;
+      next = 0;
+    }
+
+    int count = Math.min( length, current.count - next );
+    System.arraycopy( current.chars, next, chars, offset, count );
+    next += count;
+    return count;
+  }
+
+  /**
+   *  @return the total time read() spent waiting for the prefetch thread,
+   *  in nanoseconds
+   */
+  public long getWaitNanos() {
+    return waitNanos;
+  }
+
+  @Override
+  public void close() throws IOException {
+    prefetcher.interrupt();
+    source.close();
+  }
+}
@@ -0,0 +1,66 @@
+package lexer;
+
+/**
+ *  A RunFinder finds where a run of whitespace, identifier or digit
+ *  characters ends in a char[], so the Lexer can take a whole run in one
+ *  step instead of a read() per character.  Only ASCII characters are in
+ *  a run; the Lexer goes on with its character at a time loop from the
+ *  first character that is not, so Unicode is still classed by the rules
+ *  in CharClass.
+ *  <p>
+ *  SCALAR looks at one char at a time; vector() loads VectorRunFinder,
+ *  which classes a vector of chars per step with jdk.incubator.vector,
+ *  if it was compiled from the vector source root and that module was
+ *  added to the JVM.
+ */
+interface RunFinder {
+  int WHITESPACE = 0, IDENTIFIER_PART = 1, DIGIT = 2;
+
+  RunFinder SCALAR = RunFinder::scalarRunEnd;
+
+  /**
+   *  @param runClass is WHITESPACE, IDENTIFIER_PART or DIGIT
+   *  @param chars holds the chars to look at
+   *  @param from is the index of the first char of the run
+   *  @param to is the index the run may not go past, e.g. the end of the line
+   *  @return the index of the first char in [from..to) that is not in
+   *  runClass or not ASCII, or to if they all are
+   */
+  int runEnd( int runClass, char[] chars, int from, int to );
+
+  static int scalarRunEnd( int runClass, char[] chars, int from, int to ) {
+    int i = from;
+
+    switch( runClass ) {
+      case WHITESPACE:
+        while( i < to && chars[ i ] < 128 && CharClass.isWhitespace( chars[ i ] )) {
+          i++;
+        }
+        break;
+      case IDENTIFIER_PART:
+        while( i < to && chars[ i ] < 128 && CharClass.isIdentifierPart( chars[ i ] )) {
+          i++;
+        }
+        break;
+      default:
+        while( i < to && chars[ i ] >= '0' && chars[ i ] <= '9' ) {
+          i++;
+        }
+    }
+
+    return i;
+  }
+
+  /**
+   *  @return the Vector API RunFinder, or null if it cannot be loaded,
+   *  e.g. because it was not compiled or the JVM was started without
+   *  --add-modules jdk.incubator.vector
+   */
+  static RunFinder vector() {
+    try {
+      return (RunFinder) Class.forName( "lexer.VectorRunFinder" ).getDeclaredConstructor().newInstance();
+    } catch( ReflectiveOperationException | LinkageError e ) {
+      return null;
+    }
+  }
+}
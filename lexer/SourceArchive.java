@@ -0,0 +1,98 @@
+package lexer;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ *  SourceArchive reads programs straight out of compressed files: a
+ *  .x.gz file is decompressed as it is read, and the .x entries of a zip
+ *  bundle are lexed one after the other while the bundle is streamed, so
+ *  nothing is ever extracted to disk.
+ */
+public final class SourceArchive {
+
+  /**
+   *  Handler given a Lexer for each program in a zip bundle
+   */
+  public interface EntryHandler {
+    /**
+     *  @param name is the name of the zip entry, e.g. "progs/fib.x"
+     *  @param lexer returns the tokens of the entry; it is only valid
+     *  until lex returns
+     *  @exception IOException may be thrown to stop reading the bundle
+     */
+    void lex( String name, Lexer lexer ) throws IOException;
+  }
+
+  private SourceArchive() {
+  }
+
+  /**
+   *  @return true if file is a gzip compressed source
+   */
+  public static boolean isGzip( String file ) {
+    return file.endsWith( ".gz" );
+  }
+
+  /**
+   *  @return true if file is a zip bundle of sources
+   */
+  public static boolean isZip( String file ) {
+    return file.endsWith( ".zip" );
+  }
+
+  /**
+   *  @param file is the name of a gzip compressed source file
+   *  @return a Reader that decompresses the source as it is read
+   *  @exception IOException is thrown if the file cannot be opened or is
+   *  not in gzip format
+   */
+  public static Reader openGzip( String file ) throws IOException {
+    return new InputStreamReader( new GZIPInputStream( new FileInputStream( file ), 65536 ));
+  }
+
+  /**
+   *  lex every .x entry of a zip bundle in the order they are stored
+   *  @param file is the name of the zip file
+   *  @param handler is given a Lexer for each entry
+   *  @exception IOException is thrown if the bundle cannot be read
+   */
+  public static void forEachEntry( String file, EntryHandler handler ) throws IOException {
+    try( InputStream in = new FileInputStream( file )) {
+      forEachEntry( in, handler );
+    }
+  }
+
+  /**
+   *  lex every .x entry of a zip stream in the order they are stored
+   *  @param in supplies the zip data; it is not closed
+   *  @param handler is given a Lexer for each entry
+   *  @exception IOException is thrown if the stream cannot be read
+   */
+  public static void forEachEntry( InputStream in, EntryHandler handler ) throws IOException {
+    ZipInputStream zip = new ZipInputStream( in );
+    // the Lexer closes its source at the end of an entry; that must not
+    // close the zip stream
+    InputStream entry = new FilterInputStream( zip ) {
+      @Override
+      public void close() {
+      }
+    };
+    ZipEntry zipEntry;
+
+    while(( zipEntry = zip.getNextEntry() ) != null ) {
+      if( zipEntry.isDirectory() || !zipEntry.getName().endsWith( ".x" )) {
+        continue;
+      }
+
+      handler.lex( zipEntry.getName(), new Lexer( new StreamingSourceReader( new InputStreamReader( entry ))));
+    }
+  }
+}
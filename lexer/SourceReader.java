@@ -1,96 +1,160 @@
-package lexer;
-
-import java.io.*;
-
-/**
- *  This class is used to manage the source program input stream;
- *  each read request will return the next usable character; it
- *  maintains the source column position of the character
-*/
-public class SourceReader {
-    private BufferedReader source;
-    // line number of source program
-    private int lineNumber = 0;
-    // position of last character processed
-    private int position;
-    // if true then last character read was newline so read in the next line
-    private boolean isPriorEndLine = true;
-    private String nextLine;
-
-  /**
-   *  Construct a new SourceReader
-   *  @param sourceFile the String describing the user's source file
-   *  @exception IOException is thrown if there is an I/O problem
-   */
-  public SourceReader( String sourceFile ) throws IOException {
-    source = new BufferedReader( new FileReader( sourceFile ));
-  }
-
-  void close() {
-    try {
-      source.close();
-    } catch( Exception e ) { /* no-op */ }
-  }
-
-  /**
-   *  read next char; track line #, character position in line<br>
-   *  return space for newline
-   *  @return the character just read in
-   *  @IOException is thrown for IO problems such as end of file
-   */
-  public char read() throws IOException {
-    if( isPriorEndLine ) {
-      lineNumber++;
-      position = -1;
-      nextLine = source.readLine();
-
-      if( nextLine != null ) {
-        System.out.println( "READLINE:   " + nextLine );
-      }
-
-      isPriorEndLine = false;
-    }
-
-    if( nextLine == null ) {
-      // hit eof or some I/O problem
-      throw new IOException();
-    }
-
-    if( nextLine.length() == 0 ) {
-      isPriorEndLine = true;
-      return ' ';
-    }
-
-    position++;
-    if( position >= nextLine.length() ) {
-      isPriorEndLine = true;
-      return ' ';
-    }
-
-    return nextLine.charAt( position );
-  }
-
-  /**
-   *  @return the position of the character just read in
-   */
-  public int getPosition() {
-    return position;
-  }
-
-  /**
-   *  @return the line number of the character just read in
-   */
-  public int getLineNo() {
-    return lineNumber;
-  }
-
-  /**
-   * Return the current line.
-   *
-   * @return the current line.
-   */
-  public String getLine() {
-    return nextLine;
-  }
-
+package lexer;
+
+import java.io.*;
+
+/**
+ *  This class is used to manage the source program input stream;
+ *  each read request will return the next usable character; it
+ *  maintains the source column position of the character
+*/
+public class SourceReader {
+    /**
+     *  returned by read() at end of file
+     */
+    public static final int EOF = -1;
+
+    private BufferedReader source;
+    // line number of source program
+    private int lineNumber = 0;
+    // position of last character processed
+    private int position;
+    // if true then last character read was newline so read in the next line
+    private boolean isPriorEndLine = true;
+    private String nextLine;
+    // told about every line read; see LexerListener
+    protected LexerListener listener = LexerListener.NONE;
+
+  /**
+   *  Construct a new SourceReader
+   *  @param sourceFile the String describing the user's source file
+   *  @exception IOException is thrown if there is an I/O problem
+   */
+  public SourceReader( String sourceFile ) throws IOException {
+    this( new FileReader( sourceFile ));
+  }
+
+  /**
+   *  Construct a new SourceReader that reads the source line by line
+   *  from a Reader, e.g. a network stream
+   *  @param reader supplies the source program
+   */
+  public SourceReader( Reader reader ) {
+    source = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader( reader );
+  }
+
+  /**
+   *  Used by the readers that scan the source themselves (e.g.
+   *  MappedSourceReader) instead of reading it line by line
+   */
+  protected SourceReader() {
+  }
+
+  /**
+   *  @param listener is told about every line read; LexerListener.NONE
+   *  turns the notifications off
+   */
+  public void setListener( LexerListener listener ) {
+    this.listener = listener;
+  }
+
+  void close() {
+    // the readers that scan the source themselves have no BufferedReader
+    if( source == null ) {
+      return;
+    }
+    try {
+      source.close();
+    } catch( Exception e ) { /* no-op */ }
+  }
+
+  /**
+   *  read next char; track line #, character position in line<br>
+   *  return space for newline
+   *  @return the character just read in or EOF at end of file
+   *  @exception IOException is thrown for IO problems
+   */
+  public int read() throws IOException {
+    if( isPriorEndLine ) {
+      lineNumber++;
+      position = -1;
+      nextLine = source.readLine();
+
+      if( nextLine != null ) {
+        listener.lineRead( lineNumber, nextLine );
+      }
+
+      isPriorEndLine = false;
+    }
+
+    if( nextLine == null ) {
+      // hit eof
+      return EOF;
+    }
+
+    if( nextLine.length() == 0 ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    position++;
+    if( position >= nextLine.length() ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    return nextLine.charAt( position );
+  }
+
+  /**
+   *  skip the rest of the current line, e.g. a comment, in one step
+   *  instead of a read() per character; the next read() returns the
+   *  first character of the next line or EOF
+   *  @exception IOException is thrown for IO problems
+   */
+  public void skipLine() throws IOException {
+    // the rest of the line is already in nextLine
+    if( nextLine != null ) {
+      isPriorEndLine = true;
+    }
+  }
+
+  /**
+   *  @return the position of the character just read in
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   *  @return the line number of the character just read in
+   */
+  public int getLineNo() {
+    return lineNumber;
+  }
+
+  /**
+   * Return the current line.
+   *
+   * @return the current line.
+   */
+  public String getLine() {
+    return nextLine;
+  }
+
+  /**
+   *  @return the offset in the source of the character just read in if
+   *  the source is held in memory and can be sliced, otherwise -1
+   */
+  int getOffset() {
+    return -1;
+  }
+
+  /**
+   *  @return a view of length chars of the source starting at offset;
+   *  only for sources whose getOffset() is not -1
+   */
+  CharSequence slice( int offset, int length ) {
+    throw new UnsupportedOperationException( "the source is not held in memory" );
+  }
+
 }
\ No newline at end of file
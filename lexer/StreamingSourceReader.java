@@ -0,0 +1,248 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ *  A SourceReader that streams the source through a fixed size buffer
+ *  which is refilled as it is used up, so its memory use does not depend
+ *  on the length of the lines or of the file; a machine generated program
+ *  on a single huge line is read like any other.
+ *  <p>
+ *  Since a whole line is never held, getLine() returns a bounded window
+ *  around the current column instead: the last chars read on the line and
+ *  the ones following them that can be buffered, with "..." marking the
+ *  parts of the line that were left out.  A listener is likewise given
+ *  just the start of each line.
+ */
+public class StreamingSourceReader extends SourceReader {
+  // number of chars of context kept on each side of the current column
+  private static final int WINDOW = 80;
+
+  private final Reader source;
+  private final char[] buffer;
+  // buffer[next..limit) has not been read yet
+  private int next, limit;
+  // true once source has no more chars
+  private boolean endOfInput = false;
+  // true once read() has returned EOF
+  private boolean atEOF = false;
+  // line number of source program
+  private int lineNumber = 0;
+  // position of last character processed
+  private int position;
+  // if true then last character read was newline so start the next line
+  private boolean isPriorEndLine = true;
+  // the last chars read on the current line; recent[recentNext] is the oldest
+  // once recentWrapped is true, and recentDropped says older ones were lost
+  private final char[] recent = new char[ WINDOW ];
+  private int recentNext;
+  private boolean recentWrapped, recentDropped;
+
+  /**
+   *  Construct a new StreamingSourceReader with an 8K char buffer
+   *  @param source supplies the source program
+   */
+  public StreamingSourceReader( Reader source ) {
+    this( source, 8192 );
+  }
+
+  /**
+   *  Construct a new StreamingSourceReader
+   *  @param source supplies the source program
+   *  @param bufferSize is the number of chars read from source at a time
+   */
+  public StreamingSourceReader( Reader source, int bufferSize ) {
+    this.source = source;
+    buffer = new char[ Math.max( bufferSize, 2 * WINDOW ) ];
+  }
+
+  @Override
+  void close() {
+    try {
+      source.close();
+    } catch( Exception e ) { /* no-op */ }
+  }
+
+  /**
+   *  move the unread chars to the front of the buffer and read more
+   *  after them
+   *  @return false if no more chars could be read
+   */
+  private boolean fill() throws IOException {
+    if( endOfInput || limit - next == buffer.length ) {
+      return false;
+    }
+
+    System.arraycopy( buffer, next, buffer, 0, limit - next );
+    limit -= next;
+    next = 0;
+
+    int count;
+    do {
+      count = source.read( buffer, limit, buffer.length - limit );
+    } while( count == 0 );
+
+    if( count < 0 ) {
+      endOfInput = true;
+      return false;
+    }
+
+    limit += count;
+    return true;
+  }
+
+  /**
+   *  read next char; track line #, character position in line<br>
+   *  return space for newline
+   *  @return the character just read in or EOF at end of file
+   *  @exception IOException is thrown for IO problems
+   */
+  @Override
+  public int read() throws IOException {
+    if( isPriorEndLine ) {
+      lineNumber++;
+      position = -1;
+      recentNext = 0;
+      recentWrapped = false;
+      recentDropped = false;
+      isPriorEndLine = false;
+
+      if( listener != LexerListener.NONE && ( next < limit || fill() )) {
+        listener.lineRead( lineNumber, following() );
+      }
+    }
+
+    if( next == limit && !fill() ) {
+      if( position < 0 ) {
+        // hit eof
+        atEOF = true;
+        return EOF;
+      }
+      // last line has no line terminator
+      isPriorEndLine = true;
+      position++;
+      return ' ';
+    }
+
+    char c = buffer[ next++ ];
+
+    if( c == '\n' || c == '\r' ) {
+      if( c == '\r' && ( next < limit || fill() ) && buffer[ next ] == '\n' ) {
+        next++;
+      }
+      isPriorEndLine = true;
+      // an empty line leaves the position at -1 like SourceReader does
+      if( position >= 0 ) {
+        position++;
+      }
+      return ' ';
+    }
+
+    position++;
+    recentDropped = recentWrapped;
+    recent[ recentNext++ ] = c;
+    if( recentNext == WINDOW ) {
+      recentNext = 0;
+      recentWrapped = true;
+    }
+
+    return c;
+  }
+
+  /**
+   *  skip the rest of the current line by searching the buffer for its
+   *  terminator, refilling it as often as the line needs
+   *  @exception IOException is thrown for IO problems
+   */
+  @Override
+  public void skipLine() throws IOException {
+    if( isPriorEndLine || atEOF ) {
+      return;
+    }
+
+    while( next < limit || fill() ) {
+      char c = buffer[ next++ ];
+      if( c == '\n' ) {
+        break;
+      }
+      if( c == '\r' ) {
+        if(( next < limit || fill() ) && buffer[ next ] == '\n' ) {
+          next++;
+        }
+        break;
+      }
+    }
+    isPriorEndLine = true;
+  }
+
+  /**
+   *  @return up to WINDOW of the chars following the current one on
+   *  the current line
+   */
+  private String following() throws IOException {
+    if( limit - next < WINDOW ) {
+      fill();
+    }
+
+    int end = next;
+    while( end < limit && end - next < WINDOW && buffer[ end ] != '\n' && buffer[ end ] != '\r' ) {
+      end++;
+    }
+
+    String text = new String( buffer, next, end - next );
+    if( end - next == WINDOW || end == limit && !endOfInput ) {
+      text += "...";
+    }
+    return text;
+  }
+
+  /**
+   *  @return the position of the character just read in
+   */
+  @Override
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   *  @return the line number of the character just read in
+   */
+  @Override
+  public int getLineNo() {
+    return lineNumber;
+  }
+
+  /**
+   * Return a window of the current line around the character just read;
+   * it is at most 80 chars either side of it.
+   *
+   * @return the current line or null at end of file.
+   */
+  @Override
+  public String getLine() {
+    if( atEOF || lineNumber == 0 ) {
+      return null;
+    }
+
+    StringBuilder line = new StringBuilder();
+    if( recentWrapped ) {
+      if( recentDropped ) {
+        line.append( "..." );
+      }
+      line.append( recent, recentNext, WINDOW - recentNext );
+    }
+    line.append( recent, 0, recentNext );
+
+    if( !isPriorEndLine ) {
+      try {
+        line.append( following() );
+      } catch( IOException e ) {
+        line.append( "..." );
+      }
+    }
+
+    return line.toString();
+  }
+
+}
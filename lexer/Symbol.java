@@ -1,46 +1,48 @@
-package lexer;
-
-/**
- *  The Symbol class is used to store all user strings along with
- *  an indication of the kind of strings they are; e.g. the id "abc" will
- *  store the "abc" in name and Sym.Tokens.Identifier in kind
-*/
-public class Symbol {
-  private String name;
-  // token kind of symbol
-  private Tokens kind;
-
-  private Symbol( String name, Tokens kind ) {
-    this.name = name;
-    this.kind = kind;
-  }
-
-  // symbols contains all strings in the source program
-  private static java.util.Map<String,Symbol> symbols = new java.util.HashMap<String,Symbol>();
-
-  public String toString() {
-    return name;
-  }
-
-  public Tokens getKind() {
-    return kind;
-  }
-
-  /**
-   * Return the unique symbol associated with a string.
-   * Repeated calls to <tt>symbol("abc")</tt> will return the same Symbol.
-   */
-  public static Symbol symbol( String newTokenString, Tokens kind ) {
-    Symbol s = symbols.get( newTokenString );
-    if( s == null ) {
-      if( kind == Tokens.BogusToken ) {
-        // bogus string so don't enter into symbols
-        return null;
-      }
-      s = new Symbol( newTokenString, kind );
-      symbols.put( newTokenString, s );
-    }
-
-    return s;
-  }
+package lexer;
+
+/**
+ *  The Symbol class is used to store all user strings along with
+ *  an indication of the kind of strings they are; e.g. the id "abc" will
+ *  store the "abc" in name and Sym.Tokens.Identifier in kind
+*/
+public class Symbol {
+  private String name;
+  // token kind of symbol
+  private Tokens kind;
+
+  private Symbol( String name, Tokens kind ) {
+    this.name = name;
+    this.kind = kind;
+  }
+
+  // symbols contains all strings in the source program; it is concurrent
+  // since the chunks of a source lexed in parallel intern at the same time
+  private static java.util.concurrent.ConcurrentMap<String,Symbol> symbols =
+      new java.util.concurrent.ConcurrentHashMap<String,Symbol>();
+
+  public String toString() {
+    return name;
+  }
+
+  public Tokens getKind() {
+    return kind;
+  }
+
+  /**
+   * Return the unique symbol associated with a string.
+   * Repeated calls to <tt>symbol("abc")</tt> will return the same Symbol.
+   */
+  public static Symbol symbol( String newTokenString, Tokens kind ) {
+    Symbol s = symbols.get( newTokenString );
+    if( s == null ) {
+      if( kind == Tokens.BogusToken ) {
+        // bogus string so don't enter into symbols
+        return null;
+      }
+      // the first Symbol put in wins if another thread got there first
+      s = symbols.computeIfAbsent( newTokenString, name -> new Symbol( name, kind ));
+    }
+
+    return s;
+  }
 }
\ No newline at end of file
@@ -1,53 +1,152 @@
-package lexer;
-
-/** <pre>
- *  The Token class records the information for a token:
- *  1. The Symbol that describes the characters in the token
- *  2. The starting column in the source file of the token and
- *  3. The ending column in the source file of the token
- *  </pre>
-*/
-public class Token {
-  private int leftPosition,rightPosition;
-  private Symbol symbol;
-  private int lineNumber;
-
-  /**
-   *  Create a new Token based on the given Symbol
-   *  @param leftPosition is the source file column where the Token begins
-   *  @param rightPosition is the source file column where the Token ends
-   *  @param lineNumber is the line in the source file where the token exists
-   *  @param symbol describes the characters in the token
-   */
-  public Token( int leftPosition, int rightPosition, int lineNumber,Symbol symbol ) {
-    this.leftPosition = leftPosition;
-    this.rightPosition = rightPosition;
-    this.lineNumber = lineNumber;
-    this.symbol = symbol;
-  }
-
-  public String toString() {
-    return symbol.toString();
-  }
-
-  public int getLeftPosition() {
-    return leftPosition;
-  }
-
-  public int getRightPosition() {
-    return rightPosition;
-  }
-
-  public int getLineNumber() {
-    return lineNumber;
-  }
-
-  /**
-   *  @return the integer that represents the kind of symbol we have which
-   *  is actually the type of token associated with the symbol
-   */
-  public Tokens getKind() {
-    return symbol.getKind();
-  }
-}
-
+package lexer;
+
+import java.math.BigDecimal;
+
+/** <pre>
+ *  The Token class records the information for a token:
+ *  1. The Symbol that describes the characters in the token
+ *  2. The starting column in the source file of the token and
+ *  3. The ending column in the source file of the token
+ *  </pre>
+ *  The Lexer gives a token its kind and text, often a view of the
+ *  source buffer, and the Symbol is only looked up (interned) when
+ *  getSymbol() is first called.  Literals also carry their value,
+ *  decoded while they were scanned.
+*/
+public class Token {
+  private int leftPosition,rightPosition;
+  private Symbol symbol;
+  private int lineNumber;
+  private Tokens kind;
+  private CharSequence text;
+  // an INTeger's value, a NumberLit's digits without the point or a
+  // DateLit's year * 10000 + month * 100 + day
+  private long value;
+  // digits after the point of a NumberLit; -1 if the literal is too large
+  private int scale;
+
+  /**
+   *  Create a new Token based on the given Symbol
+   *  @param leftPosition is the source file column where the Token begins
+   *  @param rightPosition is the source file column where the Token ends
+   *  @param lineNumber is the line in the source file where the token exists
+   *  @param symbol describes the characters in the token
+   */
+  public Token( int leftPosition, int rightPosition, int lineNumber,Symbol symbol ) {
+    this.leftPosition = leftPosition;
+    this.rightPosition = rightPosition;
+    this.lineNumber = lineNumber;
+    this.symbol = symbol;
+    kind = symbol.getKind();
+    text = symbol.toString();
+  }
+
+  /**
+   *  Create a new Token whose Symbol is looked up when it is needed
+   *  @param leftPosition is the source file column where the Token begins
+   *  @param rightPosition is the source file column where the Token ends
+   *  @param lineNumber is the line in the source file where the token exists
+   *  @param kind is the type of token
+   *  @param text is the characters in the token; it must not change
+   */
+  public Token( int leftPosition, int rightPosition, int lineNumber, Tokens kind, CharSequence text ) {
+    this( leftPosition, rightPosition, lineNumber, kind, text, 0, 0 );
+  }
+
+  /**
+   *  Create a new literal Token whose Symbol is looked up when it is needed
+   *  @param leftPosition is the source file column where the Token begins
+   *  @param rightPosition is the source file column where the Token ends
+   *  @param lineNumber is the line in the source file where the token exists
+   *  @param kind is the type of token
+   *  @param text is the characters in the token; it must not change
+   *  @param value is the decoded value of the literal, see getValue()
+   *  @param scale is the number of digits after the point, see getScale()
+   */
+  public Token( int leftPosition, int rightPosition, int lineNumber, Tokens kind, CharSequence text, long value, int scale ) {
+    this.leftPosition = leftPosition;
+    this.rightPosition = rightPosition;
+    this.lineNumber = lineNumber;
+    this.kind = kind;
+    this.text = text;
+    this.value = value;
+    this.scale = scale;
+  }
+
+  public String toString() {
+    return text.toString();
+  }
+
+  /**
+   *  @return the characters in the token without looking up its Symbol
+   */
+  public CharSequence getText() {
+    return text;
+  }
+
+  public int getLeftPosition() {
+    return leftPosition;
+  }
+
+  public int getRightPosition() {
+    return rightPosition;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   *  @return the unique Symbol for the token's text, which is looked up
+   *  the first time it is asked for; keywords and operators have theirs
+   *  in TokenType, so only identifiers and literals are interned
+   */
+  public Symbol getSymbol() {
+    if( symbol == null ) {
+      Symbol fixed = TokenType.tokens.get( kind );
+      symbol = fixed != null && fixed.toString().contentEquals( text ) ? fixed : Symbol.symbol( text.toString(), kind );
+    }
+    return symbol;
+  }
+
+  /**
+   *  @return the integer that represents the kind of symbol we have which
+   *  is actually the type of token associated with the symbol
+   */
+  public Tokens getKind() {
+    return kind;
+  }
+
+  /**
+   *  @return the value of an INTeger, the digits of a NumberLit without
+   *  its point, i.e. its unscaled value, or the date of a DateLit packed
+   *  as year * 10000 + month * 100 + day; the year is as written, e.g. 89
+   */
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   *  @return the number of digits after the point of a NumberLit, 0 for
+   *  other tokens
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   *  @return false if the literal did not fit in a long and so has no value
+   */
+  public boolean hasValue() {
+    return scale >= 0;
+  }
+
+  /**
+   *  @return the exact value of an INTeger or NumberLit, or null if it
+   *  has no value
+   */
+  public BigDecimal getDecimalValue() {
+    return hasValue() ? BigDecimal.valueOf( value, scale ) : null;
+  }
+}
+
@@ -0,0 +1,279 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  A TokenBuffer holds a whole token stream in int columns instead of
+ *  one Token object per token: the kind, the column the token starts
+ *  in, its length, its line and the index of its Symbol in a table of
+ *  the distinct Symbols seen, so a token costs 20 bytes and the heap
+ *  does not fill up with small objects.  The value of a literal only
+ *  depends on its text, so it is kept once per Symbol.  Read it with a
+ *  Cursor or by index; a Token is only created when getToken is asked
+ *  for one.
+ */
+public class TokenBuffer {
+  private static final Tokens[] KINDS = Tokens.values();
+
+  private int[] kinds, starts, lengths, lines, symbolIndexes;
+  private int size = 0;
+  // each distinct Symbol once; Symbols are unique so identity is enough
+  private final List<Symbol> symbols = new ArrayList<>();
+  private final Map<Symbol,Integer> symbolIndex = new HashMap<>();
+  // the literal value and scale of each of the symbols
+  private long[] symbolValues = new long[ 64 ];
+  private int[] symbolScales = new int[ 64 ];
+
+  /**
+   *  Create an empty TokenBuffer with room for 1024 tokens
+   */
+  public TokenBuffer() {
+    this( 1024 );
+  }
+
+  /**
+   *  @param capacity is the number of tokens to make room for; the
+   *  buffer grows as needed
+   */
+  public TokenBuffer( int capacity ) {
+    capacity = Math.max( capacity, 16 );
+    kinds = new int[ capacity ];
+    starts = new int[ capacity ];
+    lengths = new int[ capacity ];
+    lines = new int[ capacity ];
+    symbolIndexes = new int[ capacity ];
+  }
+
+  /**
+   *  @param lexer supplies the tokens
+   *  @return a TokenBuffer holding all of the tokens lexer has left
+   */
+  public static TokenBuffer of( Lexer lexer ) {
+    TokenBuffer buffer = new TokenBuffer();
+    lexer.tokenize( buffer );
+    return buffer;
+  }
+
+  /**
+   *  add a token to the end of the buffer
+   *
+   *  @exception IllegalArgumentException is thrown for the ErrorToken of a
+   *  recovering Lexer, which has no Symbol; its Diagnostic is in
+   *  Lexer.getDiagnostics()
+   */
+  public void add( Token token ) {
+    if( token.getKind() == Tokens.BogusToken ) {
+      throw new IllegalArgumentException( "no Symbol for the BogusToken " + token + " on line " + token.getLineNumber() );
+    }
+    add( token.getLeftPosition(), token.getRightPosition(), token.getLineNumber(), token.getSymbol(),
+        token.getValue(), token.getScale() );
+  }
+
+  /**
+   *  add a token to the end of the buffer
+   *
+   *  @param leftPosition is the column where the token begins
+   *  @param rightPosition is the column where the token ends
+   *  @param lineNumber is the line the token is on
+   *  @param symbol describes the characters in the token
+   *  @param value is the value of a literal, see Token.getValue()
+   *  @param scale is the scale of a literal, see Token.getScale()
+   */
+  public void add( int leftPosition, int rightPosition, int lineNumber, Symbol symbol, long value, int scale ) {
+    if( size == kinds.length ) {
+      grow( size + ( size >> 1 ));
+    }
+
+    kinds[ size ] = symbol.getKind().ordinal();
+    starts[ size ] = leftPosition;
+    lengths[ size ] = rightPosition - leftPosition + 1;
+    lines[ size ] = lineNumber;
+    symbolIndexes[ size ] = indexOf( symbol, value, scale );
+    size++;
+  }
+
+  /**
+   *  add all of the tokens of other to the end of the buffer, e.g. those
+   *  of the chunks of a source lexed in parallel
+   */
+  public void addAll( TokenBuffer other ) {
+    if( size + other.size > kinds.length ) {
+      grow( Math.max( size + other.size, size + ( size >> 1 )));
+    }
+
+    // the index in this buffer of each of other's Symbols
+    int[] indexes = new int[ other.symbols.size() ];
+    for( int i = 0; i < indexes.length; i++ ) {
+      indexes[ i ] = indexOf( other.symbols.get( i ), other.symbolValues[ i ], other.symbolScales[ i ] );
+    }
+
+    System.arraycopy( other.kinds, 0, kinds, size, other.size );
+    System.arraycopy( other.starts, 0, starts, size, other.size );
+    System.arraycopy( other.lengths, 0, lengths, size, other.size );
+    System.arraycopy( other.lines, 0, lines, size, other.size );
+    for( int i = 0; i < other.size; i++ ) {
+      symbolIndexes[ size + i ] = indexes[ other.symbolIndexes[ i ] ];
+    }
+    size += other.size;
+  }
+
+  private void grow( int capacity ) {
+    kinds = Arrays.copyOf( kinds, capacity );
+    starts = Arrays.copyOf( starts, capacity );
+    lengths = Arrays.copyOf( lengths, capacity );
+    lines = Arrays.copyOf( lines, capacity );
+    symbolIndexes = Arrays.copyOf( symbolIndexes, capacity );
+  }
+
+  /**
+   *  @return the index of symbol in the table of Symbols, where it is
+   *  added with its value and scale the first time it is seen
+   */
+  private int indexOf( Symbol symbol, long value, int scale ) {
+    Integer index = symbolIndex.get( symbol );
+    if( index == null ) {
+      index = symbols.size();
+      if( index == symbolValues.length ) {
+        symbolValues = Arrays.copyOf( symbolValues, 2 * index );
+        symbolScales = Arrays.copyOf( symbolScales, 2 * index );
+      }
+      symbols.add( symbol );
+      symbolIndex.put( symbol, index );
+      symbolValues[ index ] = value;
+      symbolScales[ index ] = scale;
+    }
+    return index;
+  }
+
+  /**
+   *  @return the number of tokens in the buffer
+   */
+  public int size() {
+    return size;
+  }
+
+  public Tokens getKind( int index ) {
+    return KINDS[ kinds[ check( index ) ] ];
+  }
+
+  public int getLeftPosition( int index ) {
+    return starts[ check( index ) ];
+  }
+
+  public int getRightPosition( int index ) {
+    return starts[ check( index ) ] + lengths[ index ] - 1;
+  }
+
+  public int getLength( int index ) {
+    return lengths[ check( index ) ];
+  }
+
+  public int getLineNumber( int index ) {
+    return lines[ check( index ) ];
+  }
+
+  public Symbol getSymbol( int index ) {
+    return symbols.get( symbolIndexes[ check( index ) ] );
+  }
+
+  /**
+   *  @return the value of the literal at index, see Token.getValue()
+   */
+  public long getValue( int index ) {
+    return symbolValues[ symbolIndexes[ check( index ) ] ];
+  }
+
+  /**
+   *  @return the scale of the literal at index, see Token.getScale()
+   */
+  public int getScale( int index ) {
+    return symbolScales[ symbolIndexes[ check( index ) ] ];
+  }
+
+  /**
+   *  @return a new Token for the token at index
+   */
+  public Token getToken( int index ) {
+    Symbol symbol = getSymbol( index );
+    return new Token( getLeftPosition( index ), getRightPosition( index ), lines[ index ], symbol.getKind(),
+        symbol.toString(), getValue( index ), getScale( index ));
+  }
+
+  private int check( int index ) {
+    if( index < 0 || index >= size ) {
+      throw new IndexOutOfBoundsException( "token " + index + " of " + size );
+    }
+    return index;
+  }
+
+  /**
+   *  @return a Cursor positioned before the first token
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   *  A Cursor steps through the tokens of its TokenBuffer; next() moves
+   *  to the following token and the getters describe the current one
+   */
+  public class Cursor {
+    private int index = -1;
+
+    private Cursor() {
+    }
+
+    /**
+     *  @return false if there are no more tokens
+     */
+    public boolean next() {
+      if( index < size ) {
+        index++;
+      }
+      return index < size;
+    }
+
+    /**
+     *  @return the index of the current token in the buffer
+     */
+    public int index() {
+      return index;
+    }
+
+    public Tokens getKind() {
+      return TokenBuffer.this.getKind( index );
+    }
+
+    public int getLeftPosition() {
+      return TokenBuffer.this.getLeftPosition( index );
+    }
+
+    public int getRightPosition() {
+      return TokenBuffer.this.getRightPosition( index );
+    }
+
+    public int getLineNumber() {
+      return TokenBuffer.this.getLineNumber( index );
+    }
+
+    public Symbol getSymbol() {
+      return TokenBuffer.this.getSymbol( index );
+    }
+
+    public long getValue() {
+      return TokenBuffer.this.getValue( index );
+    }
+
+    public int getScale() {
+      return TokenBuffer.this.getScale( index );
+    }
+
+    public Token getToken() {
+      return TokenBuffer.this.getToken( index );
+    }
+  }
+}
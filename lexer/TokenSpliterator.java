@@ -0,0 +1,68 @@
+package lexer;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ *  The Spliterator behind Lexer.stream() and Lexer.spliterator(); it
+ *  returns the tokens of a Lexer in order.  When the whole source is in
+ *  memory and the Lexer is recovering it can be split: the lines not
+ *  scanned yet are cut in two at a line boundary, which no token crosses,
+ *  and the second half is given to a new Lexer with the same engine and
+ *  error output, so a parallel stream lexes the parts of one file at the
+ *  same time and gives the same tokens as a sequential one.  Its estimate
+ *  is the number of chars left, an upper bound on the tokens.
+ *  <p>
+ *  <b>Without recovery it never splits</b>, so a parallel stream is lexed
+ *  in one piece: the tokens end at the first illegal character, which a
+ *  part lexed ahead of it cannot know about, and the tokens such a part
+ *  had already given could not be taken back.  Lexer.tokenize( buffer,
+ *  pool ) keeps the chunks apart until they are put together and lexes
+ *  in parts either way.  The parts keep their Diagnostics in the Lexer
+ *  the stream was made from, in the order of the source.
+ */
+class TokenSpliterator implements Spliterator<Token> {
+  private Lexer lexer;
+
+  TokenSpliterator( Lexer lexer ) {
+    this.lexer = lexer;
+  }
+
+  @Override
+  public boolean tryAdvance( Consumer<? super Token> action ) {
+    Token token = lexer.nextToken();
+    if( token == null ) {
+      return false;
+    }
+    action.accept( token );
+    return true;
+  }
+
+  /**
+   *  @return a Spliterator for the tokens up to the middle of the lines
+   *  left, while this one goes on with the rest; null if the Lexer is not
+   *  recovering, the source is not in memory or too few lines are left
+   */
+  @Override
+  public Spliterator<Token> trySplit() {
+    Lexer rest = lexer.isRecovering() ? lexer.splitLines() : null;
+    if( rest == null ) {
+      return null;
+    }
+    rest.keepDiagnosticsIn( lexer );
+
+    Spliterator<Token> first = new TokenSpliterator( lexer );
+    lexer = rest;
+    return first;
+  }
+
+  @Override
+  public long estimateSize() {
+    return lexer.remaining();
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+}
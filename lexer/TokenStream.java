@@ -0,0 +1,164 @@
+package lexer;
+
+/**
+ *  A TokenStream gives a parser lookahead over the tokens of a Lexer:
+ *  peek( k ) looks at the k'th token not consumed yet without taking it,
+ *  consume() takes the next one, and mark() and reset() go back to a
+ *  token consumed earlier, e.g. to try another rule.  The tokens are held
+ *  in a ring of a fixed capacity, so the memory used does not grow with
+ *  the length of the source and looking ahead does not allocate; the
+ *  tokens looked ahead at plus those consumed since the mark must fit in
+ *  it, or an IllegalStateException is thrown.
+ *  <pre>
+ *  TokenStream tokens = new TokenStream( Lexer.of( text ));
+ *  if( tokens.peekKind( 1 ) == Tokens.Assign ) ...
+ *  </pre>
+ */
+public class TokenStream {
+  private final Lexer lexer;
+  private final Token[] ring;
+  // ring.length - 1; the capacity is a power of 2
+  private final int mask;
+  // the tokens are numbered from 0 in the order the Lexer returned them;
+  // those at [head..tail) are read but not consumed, the next one to
+  // consume is head, and mark is -1 when there is no mark
+  private long head, tail, mark = -1;
+  // true once the Lexer returned null
+  private boolean atEnd;
+
+  /**
+   *  Create a TokenStream with room for 16 tokens
+   *
+   *  @param lexer supplies the tokens
+   */
+  public TokenStream( Lexer lexer ) {
+    this( lexer, 16 );
+  }
+
+  /**
+   *  @param lexer supplies the tokens
+   *  @param capacity is the number of tokens kept, rounded up to a power
+   *  of 2: the lookahead plus the tokens consumed since the mark
+   */
+  public TokenStream( Lexer lexer, int capacity ) {
+    if( capacity < 1 || capacity > 1 << 30 ) {
+      throw new IllegalArgumentException( "capacity " + capacity );
+    }
+    this.lexer = lexer;
+    ring = new Token[ Integer.highestOneBit( capacity * 2 - 1 ) ];
+    mask = ring.length - 1;
+  }
+
+  /**
+   *  @return the number of tokens the ring holds
+   */
+  public int capacity() {
+    return ring.length;
+  }
+
+  /**
+   *  @param k is how far to look ahead; peek( 0 ) is the token consume()
+   *  returns next
+   *  @return the k'th token not consumed yet or null if the source ends
+   *  before it
+   *  @exception IllegalStateException is thrown if the token is beyond
+   *  the capacity
+   */
+  public Token peek( int k ) {
+    if( k < 0 ) {
+      throw new IllegalArgumentException( "lookahead " + k );
+    }
+
+    long index = head + k;
+    while( tail <= index ) {
+      if( !fill() ) {
+        return null;
+      }
+    }
+    return ring[ (int) index & mask ];
+  }
+
+  /**
+   *  @return the kind of the k'th token not consumed yet or null if the
+   *  source ends before it
+   */
+  public Tokens peekKind( int k ) {
+    Token token = peek( k );
+    return token != null ? token.getKind() : null;
+  }
+
+  /**
+   *  @return the next token, which is taken from the stream, or null at
+   *  the end of the source
+   */
+  public Token consume() {
+    Token token = peek( 0 );
+    if( token != null ) {
+      head++;
+    }
+    return token;
+  }
+
+  /**
+   *  remember the position of the next token so reset() can come back to
+   *  it; a mark replaces the one before it
+   */
+  public void mark() {
+    mark = head;
+  }
+
+  /**
+   *  go back to the mark, so the tokens consumed since mark() are
+   *  returned again; the mark is kept
+   *
+   *  @exception IllegalStateException is thrown if there is no mark
+   */
+  public void reset() {
+    if( mark < 0 ) {
+      throw new IllegalStateException( "no mark" );
+    }
+    head = mark;
+  }
+
+  /**
+   *  forget the mark, so the tokens consumed since it need not be kept
+   */
+  public void unmark() {
+    mark = -1;
+  }
+
+  /**
+   *  @return the number of tokens consumed so far
+   */
+  public long position() {
+    return head;
+  }
+
+  /**
+   *  read the next token of the Lexer into the ring
+   *
+   *  @return false at the end of the source
+   */
+  private boolean fill() {
+    if( atEnd ) {
+      return false;
+    }
+
+    // the oldest token kept is the mark's or else the next to consume
+    long oldest = mark >= 0 ? mark : head;
+    if( tail - oldest == ring.length ) {
+      throw new IllegalStateException( "more than " + ring.length + " tokens "
+          + ( mark >= 0 ? "looked ahead at and consumed since the mark" : "of lookahead" ));
+    }
+
+    Token token = lexer.nextToken();
+    if( token == null ) {
+      atEnd = true;
+      return false;
+    }
+
+    ring[ (int) tail & mask ] = token;
+    tail++;
+    return true;
+  }
+}
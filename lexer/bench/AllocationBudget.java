@@ -0,0 +1,250 @@
+package lexer.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lexer.Lexer;
+import lexer.LexerPool;
+import lexer.StreamingSourceReader;
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.Tokens;
+
+/**
+ *  AllocationBudget runs the Lexer over the sample programs and over a
+ *  generated corpus and measures the bytes each scanning path allocates
+ *  per token and per source byte with ThreadMXBean.getThreadAllocatedBytes;
+ *  it exits with status 1 if a path is over its budget, so a change that
+ *  brings back e.g. a String per character of an identifier is caught.
+ *  What it costs to set up a Lexer for a file is measured on an empty
+ *  source and budgeted on its own, so the small samples are held to the
+ *  same per token budget as a large file:
+ *  <pre>
+ *  java lexer.bench.AllocationBudget [-scale n] [file|directory ...]
+ *  </pre>
+ *  The files default to sample_files; -scale multiplies every budget,
+ *  e.g. to try a tighter one.  The source is read into memory before it
+ *  is measured, so only the lexing itself is counted.
+ */
+public class AllocationBudget {
+  /**
+   *  A way of running the Lexer over a source and the bytes it may
+   *  allocate per file, per token and per source byte
+   */
+  private static class Path {
+    final String name;
+    final Function<Source,Lexer> open;
+    // called with the Lexer once its source is lexed
+    final Consumer<Lexer> done;
+    final boolean buffered;
+    final double perFile, perToken, perByte;
+
+    Path( String name, Function<Source,Lexer> open, boolean buffered, double perFile, double perToken, double perByte ) {
+      this( name, open, lexer -> {}, buffered, perFile, perToken, perByte );
+    }
+
+    Path( String name, Function<Source,Lexer> open, Consumer<Lexer> done, boolean buffered,
+        double perFile, double perToken, double perByte ) {
+      this.name = name;
+      this.open = open;
+      this.done = done;
+      this.buffered = buffered;
+      this.perFile = perFile;
+      this.perToken = perToken;
+      this.perByte = perByte;
+    }
+  }
+
+  private static class Source {
+    final String text;
+    final byte[] bytes;
+
+    Source( String text ) {
+      this.text = text;
+      bytes = text.getBytes( StandardCharsets.UTF_8 );
+    }
+  }
+
+  // gives the "pooled" path the same Lexer back for every source
+  private static final LexerPool POOL = new LexerPool( 1 );
+
+  // the budgets leave about 25% over what each path allocated when they
+  // were set; lower them when a path gets cheaper
+  private static final Path[] PATHS = {
+    new Path( "memory", source -> Lexer.of( source.text ), false, 425, 125, 25 ),
+    new Path( "memory -table", source -> table( Lexer.of( source.text )), false, 425, 124, 30 ),
+    new Path( "memory -table TokenBuffer", source -> table( Lexer.of( source.text )), true, 27000, 152, 22 ),
+    new Path( "mmap", source -> Lexer.of( source.bytes, 0, source.bytes.length ), false, 400, 125, 25 ),
+    new Path( "mmap -table", source -> table( Lexer.of( source.bytes, 0, source.bytes.length )), false, 400, 112, 28 ),
+    new Path( "stream", source -> new Lexer( new StreamingSourceReader( new StringReader( source.text ))), false, 21000, 125, 25 ),
+    new Path( "memory pooled", source -> POOL.acquire( source.text ), POOL::release, false, 64, 125, 25 ),
+  };
+
+  // runs before measuring so the JIT has compiled the scanner
+  private static final int WARMUP = 20;
+  private static final int RUNS = 10;
+
+  private static Lexer table( Lexer lexer ) {
+    lexer.setEngine( Lexer.Engine.TABLE );
+    return lexer;
+  }
+
+  public static void main( String[] args ) throws IOException {
+    double scale = 1;
+    List<String> files = new ArrayList<>();
+
+    for( int arg = 0; arg < args.length; arg++ ) {
+      if( args[ arg ].equals( "-scale" ) && arg + 1 < args.length ) {
+        scale = Double.parseDouble( args[ ++arg ] );
+      } else {
+        files.add( args[ arg ] );
+      }
+    }
+    if( files.isEmpty() ) {
+      files.add( "sample_files" );
+    }
+
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if( !threads.isThreadAllocatedMemorySupported() ) {
+      System.out.println( "this JVM cannot measure allocation" );
+      System.exit( 2 );
+    }
+    threads.setThreadAllocatedMemoryEnabled( true );
+
+    List<String> texts = new ArrayList<>();
+    for( String file : files ) {
+      Samples.load( new File( file ), texts );
+    }
+    List<Source> samples = new ArrayList<>();
+    for( String text : texts ) {
+      samples.add( new Source( text ));
+    }
+    List<List<Source>> corpora = Arrays.asList( samples, Arrays.asList( generate( 20000 )));
+
+    boolean over = false;
+    List<Source> empty = Arrays.asList( new Source( "" ));
+
+    System.out.println( "setting up a Lexer" );
+    double[] perFile = new double[ PATHS.length ];
+    for( int p = 0; p < PATHS.length; p++ ) {
+      perFile[ p ] = (double) measure( threads, PATHS[ p ], empty )[ 0 ] / RUNS;
+      boolean ok = perFile[ p ] <= PATHS[ p ].perFile * scale;
+      over |= !ok;
+      System.out.printf( "  %-26s %8.0f bytes/file (budget %6.0f) %s%n",
+          PATHS[ p ].name, perFile[ p ], PATHS[ p ].perFile * scale, ok ? "ok" : "OVER BUDGET" );
+    }
+
+    for( List<Source> corpus : corpora ) {
+      long bytes = corpus.stream().mapToLong( source -> source.bytes.length ).sum();
+      System.out.printf( "%d files, %d bytes%n", corpus.size(), bytes );
+
+      for( int p = 0; p < PATHS.length; p++ ) {
+        Path path = PATHS[ p ];
+        long[] result = measure( threads, path, corpus );
+        // what is left once the Lexers are set up is the scanning
+        double scanning = Math.max( 0, result[ 0 ] - perFile[ p ] * corpus.size() * RUNS );
+
+        double perToken = scanning / result[ 1 ], perByte = scanning / ( bytes * RUNS );
+        boolean ok = perToken <= path.perToken * scale && perByte <= path.perByte * scale;
+        over |= !ok;
+        System.out.printf( "  %-26s %6.1f bytes/token (budget %5.1f) %6.2f bytes/source byte (budget %5.1f) %s%n",
+            path.name, perToken, path.perToken * scale, perByte, path.perByte * scale, ok ? "ok" : "OVER BUDGET" );
+      }
+    }
+
+    System.exit( over ? 1 : 0 );
+  }
+
+  /**
+   *  run path over corpus until it is compiled and then RUNS times more
+   *  @return the bytes allocated by the last RUNS runs and the number of
+   *  tokens they returned
+   */
+  private static long[] measure( com.sun.management.ThreadMXBean threads, Path path, List<Source> corpus ) {
+    for( int i = 0; i < WARMUP; i++ ) {
+      run( path, corpus );
+    }
+
+    long tokens = 0, before = threads.getCurrentThreadAllocatedBytes();
+    for( int i = 0; i < RUNS; i++ ) {
+      tokens += run( path, corpus );
+    }
+    return new long[] { threads.getCurrentThreadAllocatedBytes() - before, tokens };
+  }
+
+  /**
+   *  @return a program of the given number of lines using every kind of
+   *  token; the same one every time
+   */
+  private static Source generate( int lines ) {
+    Random random = new Random( 413 );
+    String[] words = { "program", "int", "if", "then", "else", "while", "return", "function", "date", "number" };
+    String[] operators = { "=", "==", "!=", "<", "<=", ">", ">=", "+", "-", "*", "/", "|", "&", "(", ")", "{", "}", "," };
+    StringBuilder text = new StringBuilder();
+
+    for( int line = 0; line < lines; line++ ) {
+      for( int token = random.nextInt( 12 ); token >= 0; token-- ) {
+        switch( random.nextInt( 6 )) {
+          case 0: text.append( words[ random.nextInt( words.length ) ] ); break;
+          case 1: text.append( "name" ).append( random.nextInt( 5000 )); break;
+          case 2: text.append( random.nextInt( 100000 )); break;
+          case 3: text.append( random.nextInt( 1000 )).append( '.' ).append( random.nextInt( 1000 )); break;
+          case 4: text.append( 1 + random.nextInt( 28 )).append( '~' ).append( 1 + random.nextInt( 12 )).append( "~2024" ); break;
+          default: text.append( operators[ random.nextInt( operators.length ) ] ); break;
+        }
+        text.append( ' ' );
+      }
+      if( random.nextInt( 8 ) == 0 ) {
+        text.append( "// a comment" );
+      }
+      text.append( '\n' );
+    }
+
+    return new Source( text.toString() );
+  }
+
+  /**
+   *  lex every source of corpus the way a pass that only looks at token
+   *  kinds would
+   *  @return the number of tokens
+   */
+  private static long run( Path path, List<Source> corpus ) {
+    long tokens = 0;
+    int identifiers = 0;
+
+    for( Source source : corpus ) {
+      Lexer lexer = path.open.apply( source );
+      lexer.setErrorOutput( Samples.NOWHERE );
+
+      if( path.buffered ) {
+        TokenBuffer buffer = new TokenBuffer();
+        tokens += lexer.tokenize( buffer );
+        for( TokenBuffer.Cursor cursor = buffer.cursor(); cursor.next(); ) {
+          identifiers += cursor.getKind() == Tokens.Identifier ? 1 : 0;
+        }
+      } else {
+        Token token;
+        while(( token = lexer.nextToken() ) != null ) {
+          identifiers += token.getKind() == Tokens.Identifier ? 1 : 0;
+          tokens++;
+        }
+      }
+      path.done.accept( lexer );
+    }
+
+    // keep the kinds looked at
+    if( identifiers < 0 ) {
+      System.out.println( identifiers );
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,134 @@
+package lexer.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import lexer.Diagnostic;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+
+/**
+ *  ChunkDifferential checks that Lexer.tokenize( buffer, pool ), which
+ *  lexes the chunks of a source in memory at the same time, gives what
+ *  tokenize( buffer ) gives: the same tokens, the same messages on the
+ *  error output in the same order and the same Diagnostics, with every
+ *  Lexer.Engine, with and without recovery.  The generated sources are
+ *  several chunks long and have illegal characters, bad dates and numbers
+ *  too large in none, one or many of their chunks, so the stop at the
+ *  first illegal character is checked wherever it falls.  The sample
+ *  programs are also lexed together as one source.  It exits with status
+ *  1 if the results differ:
+ *  <pre>
+ *  java lexer.bench.ChunkDifferential [sources] [file|directory ...]
+ *  </pre>
+ */
+public class ChunkDifferential {
+  // a source of this many lines spans several chunks of 64K chars
+  private static final int LINES = 8000;
+
+  private static final String[] PIECES = Samples.pieces(
+    "abc", "x1", "_y", "$z", "42", "0", "3.14", "7.", "12~25~2024", "1~2~89", "// a comment" );
+
+  private static final String[] ERRORS = { "@", "#", "12~3~123", "99999999999999999999", "1.5~2" };
+
+  public static void main( String[] args ) throws IOException {
+    int count = Samples.count( args, 20 );
+
+    List<String> sources = new ArrayList<>();
+    sources.add( String.join( "\n", Samples.load( args )).repeat( 200 ));
+
+    Random random = new Random( Samples.SEED );
+    for( int i = 0; i < count; i++ ) {
+      sources.add( generate( random ));
+    }
+
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    Differences differences = new Differences();
+
+    for( String source : sources ) {
+      for( Lexer.Engine engine : Lexer.Engine.values() ) {
+        for( boolean recovering : new boolean[] { false, true } ) {
+          String expected = lex( source, engine, recovering, null );
+          String got = lex( source, engine, recovering, pool );
+
+          if( !got.equals( expected ) && differences.add() ) {
+            System.out.printf( "DIFFERENT %s%s on a source of %d chars%n",
+                engine, recovering ? " recovering" : "", source.length() );
+            System.out.println( "  sequential " + firstLine( expected, got ));
+            System.out.println( "  chunked    " + firstLine( got, expected ));
+          }
+        }
+      }
+    }
+
+    differences.exit( sources.size() );
+  }
+
+  /**
+   *  @return the tokens lexed from source, then the messages written to the
+   *  error output and the Diagnostics; the chunks are lexed on pool unless
+   *  it is null
+   */
+  private static String lex( String source, Lexer.Engine engine, boolean recovering, ForkJoinPool pool ) {
+    char[] chars = source.toCharArray();
+    Lexer lexer = Lexer.of( chars, 0, chars.length );
+    lexer.setEngine( engine );
+    lexer.setRecovering( recovering );
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    lexer.setErrorOutput( new PrintStream( errors, true ));
+
+    TokenBuffer buffer = new TokenBuffer();
+    int count = pool == null ? lexer.tokenize( buffer ) : lexer.tokenize( buffer, pool );
+
+    StringBuilder result = new StringBuilder().append( count ).append( " tokens\n" );
+    for( TokenBuffer.Cursor cursor = buffer.cursor(); cursor.next(); ) {
+      result.append( cursor.getKind() ).append( ' ' ).append( cursor.getSymbol() )
+          .append( ' ' ).append( cursor.getLineNumber() )
+          .append( ':' ).append( cursor.getLeftPosition() ).append( '-' ).append( cursor.getRightPosition() )
+          .append( " = " ).append( cursor.getValue() ).append( '/' ).append( cursor.getScale() ).append( '\n' );
+    }
+    result.append( errors );
+    for( Diagnostic diagnostic : lexer.getDiagnostics() ) {
+      result.append( diagnostic ).append( '\n' );
+    }
+    return result.toString();
+  }
+
+  /**
+   *  @return a program of LINES lines of pieces with none, one or many
+   *  errors on random lines
+   */
+  private static String generate( Random random ) {
+    StringBuilder text = new StringBuilder();
+    int errors = random.nextInt( 3 ) == 0 ? 0 : random.nextBoolean() ? 1 : random.nextInt( 50 );
+    double errorRate = (double) errors / LINES;
+
+    for( int line = 0; line < LINES; line++ ) {
+      for( int piece = random.nextInt( 12 ); piece >= 0; piece-- ) {
+        String[] pieces = random.nextDouble() < errorRate / 6 ? ERRORS : PIECES;
+        text.append( pieces[ random.nextInt( pieces.length ) ] ).append( ' ' );
+      }
+      text.append( random.nextInt( 10 ) == 0 ? "\r\n" : "\n" );
+    }
+
+    return text.toString();
+  }
+
+  /**
+   *  @return the first line of text that is not the same in other
+   */
+  private static String firstLine( String text, String other ) {
+    String[] lines = text.split( "\n", -1 ), others = other.split( "\n", -1 );
+    for( int i = 0; i < lines.length; i++ ) {
+      if( i >= others.length || !lines[ i ].equals( others[ i ] )) {
+        return "line " + ( i + 1 ) + ": " + lines[ i ];
+      }
+    }
+    return "(the same up to the end)";
+  }
+}
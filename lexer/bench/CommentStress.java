@@ -0,0 +1,88 @@
+package lexer.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lexer.Lexer;
+import lexer.SourceReader;
+import lexer.StreamingSourceReader;
+import lexer.Token;
+
+/**
+ *  CommentStress lexes a program with a block of a million comment lines
+ *  on a thread with a small stack, with every reader and engine; a
+ *  scanner that recursed for each comment would overflow the stack.
+ *  It exits with status 1 if the tokens are not the expected ones:
+ *  <pre>
+ *  java lexer.bench.CommentStress [lines]
+ *  </pre>
+ */
+public class CommentStress {
+  // far less than a million nested calls need
+  private static final long STACK_SIZE = 256 * 1024;
+
+  public static void main( String[] args ) throws InterruptedException {
+    int lines = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 1000000;
+
+    StringBuilder text = new StringBuilder( "program {\n" );
+    for( int line = 0; line < lines; line++ ) {
+      text.append( "// commented out line " ).append( line ).append( '\n' );
+    }
+    text.append( "}\n" );
+    String comments = text.toString();
+
+    List<String> failures = new ArrayList<>();
+    Thread stress = new Thread( null, () -> {
+      for( Lexer.Engine engine : Lexer.Engine.values() ) {
+        check( "memory " + engine, engine, Lexer.of( comments ), lines, failures );
+        byte[] bytes = comments.getBytes( StandardCharsets.UTF_8 );
+        check( "mmap " + engine, engine, Lexer.of( bytes, 0, bytes.length ), lines, failures );
+        check( "stream " + engine, engine, new Lexer( new StreamingSourceReader( new StringReader( comments ))), lines, failures );
+        check( "reader " + engine, engine, new Lexer( new SourceReader( new StringReader( comments ))), lines, failures );
+        check( "input stream " + engine, engine,
+            Lexer.of( new ByteArrayInputStream( bytes ), StandardCharsets.UTF_8 ), lines, failures );
+      }
+    }, "comment-stress", STACK_SIZE );
+
+    stress.setUncaughtExceptionHandler(( thread, e ) -> failures.add( e.toString() ));
+    stress.start();
+    stress.join();
+
+    for( String failure : failures ) {
+      System.out.println( "FAILED " + failure );
+    }
+    System.exit( failures.isEmpty() ? 0 : 1 );
+  }
+
+  /**
+   *  lex the program, which must give program, { and } with the } after
+   *  all of the comment lines
+   */
+  private static void check( String name, Lexer.Engine engine, Lexer lexer, int lines, List<String> failures ) {
+    lexer.setEngine( engine );
+    lexer.setErrorOutput( Samples.NOWHERE );
+    long start = System.nanoTime();
+    List<Token> tokens = new ArrayList<>();
+
+    try {
+      Token token;
+      while(( token = lexer.nextToken() ) != null ) {
+        tokens.add( token );
+      }
+    } catch( StackOverflowError e ) {
+      failures.add( name + ": stack overflow after " + tokens.size() + " tokens" );
+      return;
+    }
+
+    String got = tokens.toString();
+    if( !got.equals( "[program, {, }]" ) || tokens.get( 2 ).getLineNumber() != lines + 2 ) {
+      failures.add( name + ": got " + got );
+      return;
+    }
+
+    System.out.printf( "%-22s %d comment lines in %.0f ms%n", name, lines, ( System.nanoTime() - start ) / 1e6 );
+  }
+}
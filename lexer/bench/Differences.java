@@ -0,0 +1,31 @@
+package lexer.bench;
+
+/**
+ *  Differences counts the results a differential harness finds to
+ *  differ, has the first few of them described and ends the run with an
+ *  exit status saying whether there were any.
+ */
+final class Differences {
+  // how many differences are described before giving up
+  private static final int MAX_REPORTED = 10;
+
+  private int count = 0;
+
+  /**
+   *  count a difference
+   *  @return true if it is one of the first MAX_REPORTED, which are
+   *  described
+   */
+  boolean add() {
+    return count++ < MAX_REPORTED;
+  }
+
+  /**
+   *  print how many sources were compared and how many differences were
+   *  found and exit, with status 1 if there were any
+   */
+  void exit( int sources ) {
+    System.out.printf( "%d sources, %d differences%n", sources, count );
+    System.exit( count == 0 ? 0 : 1 );
+  }
+}
@@ -0,0 +1,114 @@
+package lexer.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import lexer.Lexer;
+import lexer.Token;
+
+/**
+ *  EngineDifferential lexes the sample programs and many generated ones
+ *  with every Lexer.Engine and checks that they all give the same tokens,
+ *  positions, lines and literal values as SCALAR.  The generated programs
+ *  have long runs of whitespace, identifier characters and digits, so
+ *  they cross the vectors the VECTOR engine looks at, and non-ASCII
+ *  characters in and next to the runs, where it has to fall back to the
+ *  Unicode rules.  It exits with status 1 if an engine differs:
+ *  <pre>
+ *  java --add-modules jdk.incubator.vector lexer.bench.EngineDifferential [programs] [file|directory ...]
+ *  </pre>
+ *  Without --add-modules, or when VectorRunFinder was not compiled from
+ *  the vector source root, the VECTOR engine finds the runs a character
+ *  at a time, which is still checked.  The source is lexed from a
+ *  char[], as the VECTOR engine only takes runs in one step from one.
+ */
+public class EngineDifferential {
+  private static final String[] PIECES = Samples.pieces(
+    ".", "~", "//", "_", "$", "\t", "\r\n", "\n", "\u00a0", "\u2003", "\u00e9", "\u0660", "\u4e2d",
+    "\u0007", "\u007f", "\u001c", "@", "#" );
+
+  public static void main( String[] args ) throws IOException {
+    int programs = Samples.count( args, 100000 );
+
+    System.out.println( "Vector API " + ( Lexer.isVectorAvailable() ? "available" : "not available" ));
+
+    List<String> sources = Samples.load( args );
+    Random random = new Random( Samples.SEED );
+    for( int i = 0; i < programs; i++ ) {
+      sources.add( generate( random ));
+    }
+
+    Differences differences = new Differences();
+    for( String source : sources ) {
+      String expected = lex( source, Lexer.Engine.SCALAR );
+
+      for( Lexer.Engine engine : Lexer.Engine.values() ) {
+        String got = lex( source, engine );
+
+        if( !got.equals( expected ) && differences.add() ) {
+          System.out.println( "DIFFERENT " + engine + " on " + escape( source ));
+          System.out.println( "  SCALAR " + expected );
+          System.out.println( "  " + engine + " " + got );
+        }
+      }
+    }
+
+    differences.exit( sources.size() );
+  }
+
+  /**
+   *  @return every token lexed from source with engine and where it is
+   */
+  private static String lex( String source, Lexer.Engine engine ) {
+    char[] chars = source.toCharArray();
+    Lexer lexer = Lexer.of( chars, 0, chars.length );
+    lexer.setEngine( engine );
+    lexer.setErrorOutput( Samples.NOWHERE );
+
+    StringBuilder tokens = new StringBuilder();
+    Token token;
+    while(( token = lexer.nextToken() ) != null ) {
+      tokens.append( token.getKind() ).append( ' ' ).append( token.getText() )
+          .append( ' ' ).append( token.getLineNumber() )
+          .append( ':' ).append( token.getLeftPosition() ).append( '-' ).append( token.getRightPosition() )
+          .append( " = " ).append( token.getValue() ).append( '/' ).append( token.getScale() ).append( '\n' );
+    }
+    return tokens.toString();
+  }
+
+  /**
+   *  @return a random program of pieces and runs, some longer than any
+   *  vector
+   */
+  private static String generate( Random random ) {
+    StringBuilder text = new StringBuilder();
+
+    for( int piece = random.nextInt( 40 ); piece >= 0; piece-- ) {
+      switch( random.nextInt( 5 )) {
+        case 0: text.append( " ".repeat( random.nextInt( 70 ))); break;
+        case 1: text.append( run( random, "abcXYZ_$019" )); break;
+        case 2: text.append( run( random, "0123456789" )); break;
+        default: text.append( PIECES[ random.nextInt( PIECES.length ) ] ); break;
+      }
+    }
+
+    return text.toString();
+  }
+
+  private static String run( Random random, String chars ) {
+    StringBuilder run = new StringBuilder();
+    for( int length = random.nextInt( 90 ); length >= 0; length-- ) {
+      run.append( chars.charAt( random.nextInt( chars.length() )));
+    }
+    return run.toString();
+  }
+
+  private static String escape( String source ) {
+    StringBuilder escaped = new StringBuilder( "\"" );
+    for( char c : source.toCharArray() ) {
+      escaped.append( c >= ' ' && c < 127 && c != '"' && c != '\\' ? String.valueOf( c ) : String.format( "\\u%04x", (int) c ));
+    }
+    return escaped.append( '"' ).toString();
+  }
+}
@@ -0,0 +1,93 @@
+package lexer.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  What the harnesses in lexer.bench share: their command line, reading
+ *  the sample programs, the tokens generated programs are made of and an
+ *  error output for the Lexers whose messages are not wanted.
+ */
+final class Samples {
+  static final PrintStream NOWHERE = new PrintStream( OutputStream.nullOutputStream() );
+
+  // the generated programs are the same on every run
+  static final long SEED = 413;
+
+  // keywords, operators and separators for the generated programs
+  private static final String[] TOKENS = {
+    "program", "int", "if", "then", "else", "while", "return", "function", "date", "number",
+    "=", "==", "!=", "<", "<=", ">", ">=", "+", "-", "*", "/", "|", "&", "(", ")", "{", "}", ",",
+  };
+
+  private Samples() {
+  }
+
+  /**
+   *  @return the keywords, operators and separators followed by more, the
+   *  pieces a harness makes its programs of
+   */
+  static String[] pieces( String... more ) {
+    String[] pieces = Arrays.copyOf( TOKENS, TOKENS.length + more.length );
+    System.arraycopy( more, 0, pieces, TOKENS.length, more.length );
+    return pieces;
+  }
+
+  /**
+   *  @param args is the command line, [count] [file|directory ...]
+   *  @param count is what to return if args has no count
+   *  @return the number of programs to generate
+   */
+  static int count( String[] args, int count ) {
+    for( String arg : args ) {
+      if( arg.matches( "\\d+" )) {
+        count = Integer.parseInt( arg );
+      }
+    }
+    return count;
+  }
+
+  /**
+   *  @param args is the command line, [count] [file|directory ...]
+   *  @return the text of the files named in args, or of those in
+   *  sample_files if none are
+   */
+  static List<String> load( String[] args ) throws IOException {
+    List<String> sources = new ArrayList<>();
+    boolean named = false;
+
+    for( String arg : args ) {
+      if( !arg.matches( "\\d+" )) {
+        load( new File( arg ), sources );
+        named = true;
+      }
+    }
+    if( !named ) {
+      load( new File( "sample_files" ), sources );
+    }
+    return sources;
+  }
+
+  /**
+   *  add the text of file, or of every .x file under the directory file
+   *  in the order of their names, to sources
+   */
+  static void load( File file, List<String> sources ) throws IOException {
+    if( file.isDirectory() ) {
+      File[] children = file.listFiles();
+      Arrays.sort( children );
+      for( File child : children ) {
+        load( child, sources );
+      }
+    } else if( file.getName().endsWith( ".x" )) {
+      sources.add( new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ));
+    }
+  }
+}
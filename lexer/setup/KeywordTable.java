@@ -0,0 +1,138 @@
+package lexer.setup;
+
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ *  KeywordTable finds a perfect hash for the keywords read by TokenSetup,
+ *  those tokens whose printstring is an identifier, and writes it as
+ *  <i>Keywords.java</i>.<br>
+ *  The hash of a word is its first character * FIRST + its last character
+ *  * LAST + its length, masked to the size of the table; FIRST, LAST and
+ *  the size, a power of 2, are the smallest ones for which no 2 keywords
+ *  share a slot.  So an identifier is checked with 1 hash and at most 1
+ *  comparison, and no String needs to be made for it.
+ */
+class KeywordTable {
+  // the largest multiplier and table size tried before giving up
+  private static final int MAX_MULTIPLIER = 255, MAX_SIZE = 1 << 12;
+
+  private final Map<String,String> keywords = new LinkedHashMap<String,String>();
+  private String[] words;
+  private int first, last, minLength = Integer.MAX_VALUE, maxLength;
+
+  KeywordTable( List<String> types, List<String> values ) {
+    for( int i = 0; i < types.size(); i++ ) {
+      String value = values.get( i );
+
+      if( ScannerTable.isIdentifier( value )) {
+        keywords.put( value, types.get( i ));
+        minLength = Math.min( minLength, value.length() );
+        maxLength = Math.max( maxLength, value.length() );
+      }
+    }
+
+    build();
+  }
+
+  private static int hash( String word, int first, int last ) {
+    return word.charAt( 0 ) * first + word.charAt( word.length() - 1 ) * last + word.length();
+  }
+
+  /**
+   *  try the table sizes from the smallest that holds every keyword up
+   *  and for each the multipliers from the smallest up
+   */
+  private void build() {
+    for( int size = Integer.highestOneBit( Math.max( 1, keywords.size() ) * 2 - 1 ); size <= MAX_SIZE; size *= 2 ) {
+      for( int first = 1; first <= MAX_MULTIPLIER; first++ ) {
+        for( int last = 0; last <= MAX_MULTIPLIER; last++ ) {
+          if( fill( size, first, last )) {
+            return;
+          }
+        }
+      }
+    }
+
+    System.out.println( "***no perfect hash found for the keywords***" );
+    System.exit( 1 );
+  }
+
+  /**
+   *  @return true if no 2 keywords share a slot of a table of size with
+   *  these multipliers, in which case it is the table written
+   */
+  private boolean fill( int size, int first, int last ) {
+    String[] slots = new String[ size ];
+
+    for( String word : keywords.keySet() ) {
+      int slot = hash( word, first, last ) & ( size - 1 );
+      if( slots[ slot ] != null ) {
+        return false;
+      }
+      slots[ slot ] = word;
+    }
+
+    words = slots;
+    this.first = first;
+    this.last = last;
+    return true;
+  }
+
+  void write( PrintWriter out ) {
+    out.println( "package lexer;" );
+    out.println( " " );
+    out.println( "/**" );
+    out.println( " *  This file is automatically generated<br>" );
+    out.println( " *  it contains a perfect hash table of the keywords, so an" );
+    out.println( " *  identifier is told from a keyword without making a String" );
+    out.println( "*/" );
+    out.println( "final class Keywords {" );
+    out.println( "  private static final int FIRST = " + first + ", LAST = " + last + ", MASK = " + ( words.length - 1 ) + ";" );
+    out.println( "  private static final int MIN_LENGTH = " + minLength + ", MAX_LENGTH = " + maxLength + ";" );
+    out.println( " " );
+
+    out.print( "  private static final String[] WORDS = {" );
+    for( int slot = 0; slot < words.length; slot++ ) {
+      String word = words[ slot ] == null ? "null" : "\"" + words[ slot ] + "\"";
+      out.print(( slot % 8 == 0 ? "\n    " : " " ) + word + ( slot < words.length - 1 ? "," : "" ));
+    }
+    out.println( "\n  };" );
+    out.println( " " );
+
+    out.print( "  private static final Tokens[] KINDS = {" );
+    for( int slot = 0; slot < words.length; slot++ ) {
+      String kind = words[ slot ] == null ? "null" : "Tokens." + keywords.get( words[ slot ] );
+      out.print(( slot % 4 == 0 ? "\n    " : " " ) + kind + ( slot < words.length - 1 ? "," : "" ));
+    }
+    out.println( "\n  };" );
+    out.println( " " );
+
+    out.println( "  private Keywords() {" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the kind of keyword id is, or Tokens.Identifier if it is" );
+    out.println( "   *  not one" );
+    out.println( "   */" );
+    out.println( "  static Tokens kind( CharSequence id ) {" );
+    out.println( "    int length = id.length();" );
+    out.println( "    if( length < MIN_LENGTH || length > MAX_LENGTH ) {" );
+    out.println( "      return Tokens.Identifier;" );
+    out.println( "    }" );
+    out.println( " " );
+    out.println( "    int slot = ( id.charAt( 0 ) * FIRST + id.charAt( length - 1 ) * LAST + length ) & MASK;" );
+    out.println( "    String word = WORDS[ slot ];" );
+    out.println( "    if( word == null || word.length() != length ) {" );
+    out.println( "      return Tokens.Identifier;" );
+    out.println( "    }" );
+    out.println( "    for( int i = 0; i < length; i++ ) {" );
+    out.println( "      if( word.charAt( i ) != id.charAt( i )) {" );
+    out.println( "        return Tokens.Identifier;" );
+    out.println( "      }" );
+    out.println( "    }" );
+    out.println( "    return KINDS[ slot ];" );
+    out.println( "  }" );
+    out.println( "}" );
+  }
+}
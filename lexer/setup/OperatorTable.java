@@ -0,0 +1,120 @@
+package lexer.setup;
+
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ *  OperatorTable writes the operators and separators read by TokenSetup,
+ *  those tokens whose printstring is neither an identifier nor in angle
+ *  brackets, as <i>Operators.java</i>: a table indexed by the first
+ *  character with the kind of the one character token, and for the
+ *  characters that start a two character token a second table indexed by
+ *  the second character.  The hand written scanner reads at most two
+ *  characters of an operator, so a longer one is an error.
+ */
+class OperatorTable {
+  private final Map<String,String> operators = new LinkedHashMap<String,String>();
+  // the tables are indexed by chars below size
+  private int size;
+
+  OperatorTable( List<String> types, List<String> values ) {
+    for( int i = 0; i < types.size(); i++ ) {
+      String type = types.get( i ), value = values.get( i );
+
+      if( !( value.length() > 2 && value.startsWith( "<" ) && value.endsWith( ">" )) && !ScannerTable.isIdentifier( value )) {
+        if( value.length() > 2 ) {
+          System.out.println( "***operator " + value + " is longer than 2 characters***" );
+          System.exit( 1 );
+        }
+        operators.put( value, type );
+        for( char c : value.toCharArray() ) {
+          size = Math.max( size, c + 1 );
+        }
+      }
+    }
+  }
+
+  /**
+   *  @return c as the index of a table; a char literal where it can be
+   *  written as one without escapes
+   */
+  private static String index( char c ) {
+    return c > ' ' && c < 127 && c != '\'' && c != '\\' ? "'" + c + "'" : String.valueOf( (int) c );
+  }
+
+  void write( PrintWriter out ) {
+    out.println( "package lexer;" );
+    out.println( " " );
+    out.println( "/**" );
+    out.println( " *  This file is automatically generated<br>" );
+    out.println( " *  it contains the kinds of the operators and separators indexed" );
+    out.println( " *  by their first and second characters, so the hand written scanner" );
+    out.println( " *  finds them without making a String" );
+    out.println( "*/" );
+    out.println( "final class Operators {" );
+    out.println( "  // the kind of each one character token and, for each character" );
+    out.println( "  // that starts a two character token, the kinds by second character" );
+    out.println( "  private static final Tokens[] SINGLE = new Tokens[ " + size + " ];" );
+    out.println( "  private static final Tokens[][] DOUBLE = new Tokens[ " + size + " ][];" );
+    out.println( " " );
+    out.println( "  static {" );
+
+    Set<Character> starts = new LinkedHashSet<Character>();
+    for( Map.Entry<String,String> operator : operators.entrySet() ) {
+      String value = operator.getKey();
+      if( value.length() == 1 ) {
+        out.println( "    SINGLE[ " + index( value.charAt( 0 )) + " ] = Tokens." + operator.getValue() + ";" );
+      } else {
+        starts.add( value.charAt( 0 ));
+      }
+    }
+    for( char first : starts ) {
+      out.println( "    DOUBLE[ " + index( first ) + " ] = new Tokens[ " + size + " ];" );
+      for( Map.Entry<String,String> operator : operators.entrySet() ) {
+        String value = operator.getKey();
+        if( value.length() == 2 && value.charAt( 0 ) == first ) {
+          out.println( "    DOUBLE[ " + index( first ) + " ][ " + index( value.charAt( 1 )) + " ] = Tokens."
+              + operator.getValue() + ";" );
+        }
+      }
+    }
+
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  private Operators() {" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the kind of the one character token first, or null if" );
+    out.println( "   *  it is not one" );
+    out.println( "   */" );
+    out.println( "  static Tokens single( int first ) {" );
+    out.println( "    return first >= 0 && first < SINGLE.length ? SINGLE[ first ] : null;" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the kind of the two character token first second, or" );
+    out.println( "   *  null if it is not one" );
+    out.println( "   */" );
+    out.println( "  static Tokens pair( int first, int second ) {" );
+    out.println( "    if( first < 0 || first >= DOUBLE.length || second < 0 || second >= DOUBLE.length ) {" );
+    out.println( "      return null;" );
+    out.println( "    }" );
+    out.println( "    Tokens[] seconds = DOUBLE[ first ];" );
+    out.println( "    return seconds != null ? seconds[ second ] : null;" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the kind of the operator or separator text, or null if" );
+    out.println( "   *  it is not one" );
+    out.println( "   */" );
+    out.println( "  static Tokens kind( CharSequence text ) {" );
+    out.println( "    switch( text.length() ) {" );
+    out.println( "      case 1: return single( text.charAt( 0 ));" );
+    out.println( "      case 2: return pair( text.charAt( 0 ), text.charAt( 1 ));" );
+    out.println( "      default: return null;" );
+    out.println( "    }" );
+    out.println( "  }" );
+    out.println( "}" );
+  }
+}
@@ -0,0 +1,382 @@
+package lexer.setup;
+
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ *  ScannerTable builds the DFA for the table driven scanner from the
+ *  tokens read by TokenSetup and writes it as <i>TokenTable.java</i>.<br>
+ *  The tokens fall into 3 groups:<ul>
+ *  <li>keywords, whose printstring is an identifier, e.g. <i>If if</i></li>
+ *  <li>literals, whose printstring is in angle brackets; the DFA knows
+ *  how to scan <i>Identifier</i>, <i>INTeger</i>, <i>NumberLit</i> and
+ *  <i>DateLit</i></li>
+ *  <li>operators and separators, all other printstrings, e.g. <i>LessEqual &lt;=</i></li></ul>
+ *  Characters are first mapped to classes: one class per character used
+ *  in a keyword or operator, and classes for the other digits, identifier
+ *  starts and identifier parts; the DFA has a row of next states per class
+ *  for each state and the token kind each state accepts.  The scanner
+ *  stops when there is no next state, it never backs up, so a state
+ *  whose text is not a token accepts BogusToken.
+ */
+class ScannerTable {
+  // character classes every table has
+  private static final int OTHER = 0, DIGIT = 1, LETTER = 2, PART = 3;
+
+  private final Map<String,String> keywords = new LinkedHashMap<String,String>();
+  private final Map<String,String> operators = new LinkedHashMap<String,String>();
+  private final Set<String> literals = new HashSet<String>();
+  // class of each character with a class of its own
+  private final Map<Character,Integer> charClass = new TreeMap<Character,Integer>();
+  private int classCount = PART + 1;
+  // next[state][class] and the token kind accepted in each state
+  private final List<int[]> next = new ArrayList<int[]>();
+  private final List<String> kinds = new ArrayList<String>();
+  private final List<String> names = new ArrayList<String>();
+  // the classes of the digits, a keyword may give some of them their own
+  private List<Integer> digits;
+
+  ScannerTable( List<String> types, List<String> values ) {
+    for( int i = 0; i < types.size(); i++ ) {
+      String type = types.get( i ), value = values.get( i );
+
+      if( value.length() > 2 && value.startsWith( "<" ) && value.endsWith( ">" )) {
+        literals.add( type );
+      } else if( isIdentifier( value )) {
+        keywords.put( value, type );
+      } else {
+        operators.put( value, type );
+      }
+    }
+
+    // only the ASCII characters are looked up in the generated table,
+    // the others are classed by the Unicode rules
+    for( String keyword : keywords.keySet() ) {
+      for( char c : keyword.toCharArray() ) {
+        if( c >= 128 ) {
+          fail( "keyword " + keyword + " contains a character that is not ASCII" );
+        }
+        addClass( c );
+      }
+    }
+    for( String operator : operators.keySet() ) {
+      for( char c : operator.toCharArray() ) {
+        if( Character.isJavaIdentifierPart( c ) || Character.isWhitespace( c )) {
+          fail( "operator " + operator + " contains an identifier or blank character" );
+        }
+        if( c >= 128 ) {
+          fail( "operator " + operator + " contains a character that is not ASCII" );
+        }
+        addClass( c );
+      }
+      for( int length = 2; length < operator.length(); length++ ) {
+        // the scanner never backs up, so it could not return the shorter token
+        if( !operators.containsKey( operator.substring( 0, length ))) {
+          fail( "operator " + operator + " needs its prefix " + operator.substring( 0, length ) + " to be a token" );
+        }
+      }
+    }
+    addClass( '.' );
+    addClass( '~' );
+
+    build();
+  }
+
+  static boolean isIdentifier( String value ) {
+    if( !Character.isJavaIdentifierStart( value.charAt( 0 ))) {
+      return false;
+    }
+    for( char c : value.toCharArray() ) {
+      if( !Character.isJavaIdentifierPart( c )) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void fail( String message ) {
+    System.out.println( "***" + message + "***" );
+    System.exit( 1 );
+  }
+
+  private void addClass( char c ) {
+    if( !charClass.containsKey( c )) {
+      charClass.put( c, classCount++ );
+    }
+  }
+
+  private int classOf( char c ) {
+    Integer dedicated = charClass.get( c );
+    if( dedicated != null ) {
+      return dedicated;
+    }
+    if( Character.isDigit( c )) {
+      return DIGIT;
+    }
+    if( Character.isJavaIdentifierStart( c )) {
+      return LETTER;
+    }
+    if( Character.isJavaIdentifierPart( c )) {
+      return PART;
+    }
+    return OTHER;
+  }
+
+  private int newState( String name, String kind ) {
+    int[] row = new int[ classCount ];
+    Arrays.fill( row, -1 );
+    next.add( row );
+    kinds.add( kind );
+    names.add( name );
+    return next.size() - 1;
+  }
+
+  private void move( int from, int charClass, int to ) {
+    next.get( from )[ charClass ] = to;
+  }
+
+  private void onDigit( int from, int to ) {
+    for( int c : digits ) {
+      move( from, c, to );
+    }
+  }
+
+  /**
+   *  @return the classes of the characters that satisfy test
+   */
+  private List<Integer> classesWhere( IntPredicate test ) {
+    Set<Integer> classes = new TreeSet<Integer>();
+    for( char c = 0; c < Character.MAX_VALUE; c++ ) {
+      if( test.test( c )) {
+        classes.add( classOf( c ));
+      }
+    }
+    return new ArrayList<Integer>( classes );
+  }
+
+  private void build() {
+    int start = newState( "start", "BogusToken" );
+    digits = classesWhere( Character::isDigit );
+
+    if( literals.contains( "Identifier" )) {
+      buildIdentifiers( start );
+    }
+    if( literals.contains( "INTeger" )) {
+      buildNumbers( start );
+    }
+    buildOperators( start );
+  }
+
+  /**
+   *  identifiers start with a letter and go on with letters and digits;
+   *  the keywords are a trie inside them
+   */
+  private void buildIdentifiers( int start ) {
+    List<Integer> partClasses = classesWhere( Character::isJavaIdentifierPart );
+
+    int id = newState( "identifier", "Identifier" );
+    for( int c : classesWhere( Character::isJavaIdentifierStart )) {
+      move( start, c, id );
+    }
+    for( int c : partClasses ) {
+      move( id, c, id );
+    }
+
+    Map<String,Integer> trie = new HashMap<String,Integer>();
+    for( String keyword : keywords.keySet() ) {
+      int state = start;
+
+      for( int i = 1; i <= keyword.length(); i++ ) {
+        String prefix = keyword.substring( 0, i );
+        Integer child = trie.get( prefix );
+
+        if( child == null ) {
+          child = newState( "\"" + prefix + "\"", "Identifier" );
+          for( int c : partClasses ) {
+            move( child, c, id );
+          }
+          trie.put( prefix, child );
+          move( state, charClass.get( prefix.charAt( i - 1 )), child );
+        }
+        state = child;
+      }
+
+      kinds.set( state, keywords.get( keyword ));
+    }
+  }
+
+  /**
+   *  INTeger is digits, NumberLit is digits.digits and DateLit is
+   *  d~d~y with 1 or 2 digit day and month and 1, 2 or 4 digit year;
+   *  a literal that goes on with a second ~ must be a valid date
+   */
+  private void buildNumbers( int start ) {
+    boolean numbers = literals.contains( "NumberLit" ), dates = literals.contains( "DateLit" );
+    String date = dates ? "DateLit" : "BogusToken";
+    int dot = charClass.get( '.' ), tilde = charClass.get( '~' );
+
+    int[] integer = { newState( "d", "INTeger" ), newState( "dd", "INTeger" ), newState( "ddd", "INTeger" ) };
+    onDigit( start, integer[ 0 ] );
+    onDigit( integer[ 0 ], integer[ 1 ] );
+    onDigit( integer[ 1 ], integer[ 2 ] );
+    onDigit( integer[ 2 ], integer[ 2 ] );
+
+    // d+~ followed by a year, valid or not
+    int badYear = newState( "bad date", "BogusToken" );
+    onDigit( badYear, badYear );
+    int[] year = { newState( "d~d~", "BogusToken" ), newState( "d~d~y", date ), newState( "d~d~yy", date ),
+      newState( "d~d~yyy", "BogusToken" ), newState( "d~d~yyyy", date ), newState( "d~d~yyyyy", "BogusToken" ) };
+    for( int i = 0; i < year.length; i++ ) {
+      onDigit( year[ i ], year[ Math.min( i + 1, year.length - 1 ) ] );
+    }
+
+    if( numbers ) {
+      int point = newState( "d.", "INTeger" ), fraction = newState( "d.d", "NumberLit" );
+      for( int state : integer ) {
+        move( state, dot, point );
+      }
+      onDigit( point, fraction );
+      onDigit( fraction, fraction );
+      move( point, tilde, badYear );
+    }
+
+    // d~ followed by a month; the day is valid if it has 1 or 2 digits
+    int[] month = { newState( "d~", "INTeger" ), newState( "d~d", "INTeger" ), newState( "d~dd", "INTeger" ) };
+    int badMonth = newState( "bad d~d", "INTeger" );
+    move( integer[ 0 ], tilde, month[ 0 ] );
+    move( integer[ 1 ], tilde, month[ 0 ] );
+    move( integer[ 2 ], tilde, badMonth );
+    onDigit( month[ 0 ], month[ 1 ] );
+    onDigit( month[ 1 ], month[ 2 ] );
+    onDigit( month[ 2 ], badMonth );
+    onDigit( badMonth, badMonth );
+    move( month[ 0 ], tilde, badYear );
+    move( month[ 1 ], tilde, year[ 0 ] );
+    move( month[ 2 ], tilde, year[ 0 ] );
+    move( badMonth, tilde, badYear );
+  }
+
+  /**
+   *  operators are a trie over their characters
+   */
+  private void buildOperators( int start ) {
+    Map<String,Integer> trie = new HashMap<String,Integer>();
+
+    for( String operator : operators.keySet() ) {
+      int state = start;
+
+      for( int i = 1; i <= operator.length(); i++ ) {
+        String prefix = operator.substring( 0, i );
+        Integer child = trie.get( prefix );
+
+        if( child == null ) {
+          child = newState( "\"" + prefix + "\"", "BogusToken" );
+          trie.put( prefix, child );
+          move( state, charClass.get( prefix.charAt( i - 1 )), child );
+        }
+        state = child;
+      }
+
+      kinds.set( state, operators.get( operator ));
+    }
+  }
+
+  /**
+   *  @return c as an escape in a String literal; javac translates unicode
+   *  escapes before it reads the literal, so line ends, the quote and the
+   *  backslash need their own escapes
+   */
+  private static String escape( char c ) {
+    switch( c ) {
+      case '\n': return "\\n";
+      case '\r': return "\\r";
+      case '"': return "\\\"";
+      case '\\': return "\\\\";
+      default: return String.format( "\\u%04x", (int) c );
+    }
+  }
+
+  /**
+   *  write TokenTable.java; the transitions are stored in a String, one
+   *  char per entry holding the next state + 1, to keep the class small
+   */
+  void write( PrintWriter out ) {
+    out.println( "package lexer;" );
+    out.println( " " );
+    out.println( "/**" );
+    out.println( " *  This file is automatically generated<br>" );
+    out.println( " *  it contains the DFA the table driven scanner runs on:" );
+    out.println( " *  the character classes, the next state for each state and" );
+    out.println( " *  class, and the token kind each state accepts" );
+    out.println( "*/" );
+    out.println( "final class TokenTable {" );
+    out.println( "  static final int START = 0;" );
+    out.println( "  static final int CLASSES = " + classCount + ";" );
+    out.println( "  private static final int OTHER = " + OTHER + ", DIGIT = " + DIGIT
+        + ", LETTER = " + LETTER + ", PART = " + PART + ";" );
+    out.println( " " );
+
+    out.print( "  private static final byte[] ASCII = {" );
+    for( char c = 0; c < 128; c++ ) {
+      out.print(( c % 16 == 0 ? "\n    " : " " ) + classOf( c ) + ( c < 127 ? "," : "" ));
+    }
+    out.println( "\n  };" );
+    out.println( " " );
+
+    out.println( "  // next state + 1 for each state and class; 0 means no next state" );
+    out.print( "  private static final String NEXT =" );
+    for( int state = 0; state < next.size(); state++ ) {
+      out.print( "\n    // " + state + ": " + names.get( state ) + "\n    \"" );
+      for( int target : next.get( state )) {
+        out.print( escape( (char) ( target + 1 )));
+      }
+      out.print( "\"" + ( state < next.size() - 1 ? " +" : ";" ));
+    }
+    out.println();
+    out.println( " " );
+
+    out.print( "  static final Tokens[] KIND = {" );
+    for( int state = 0; state < kinds.size(); state++ ) {
+      out.print(( state % 4 == 0 ? "\n    " : " " ) + "Tokens." + kinds.get( state ) + ( state < kinds.size() - 1 ? "," : "" ));
+    }
+    out.println( "\n  };" );
+    out.println( " " );
+
+    out.println( "  private static final short[] TRANSITIONS = new short[ NEXT.length() ];" );
+    out.println( " " );
+    out.println( "  static {" );
+    out.println( "    for( int i = 0; i < TRANSITIONS.length; i++ ) {" );
+    out.println( "      TRANSITIONS[ i ] = (short) ( NEXT.charAt( i ) - 1 );" );
+    out.println( "    }" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  private TokenTable() {" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the class of ch; other characters than ASCII are classed" );
+    out.println( "   *  by the Unicode rules, and EOF is in no class used by the DFA" );
+    out.println( "   */" );
+    out.println( "  static int classOf( int ch ) {" );
+    out.println( "    if( ch < 128 ) {" );
+    out.println( "      return ch < 0 ? OTHER : ASCII[ ch ];" );
+    out.println( "    }" );
+    out.println( "    if( Character.isDigit( ch )) {" );
+    out.println( "      return DIGIT;" );
+    out.println( "    }" );
+    out.println( "    if( Character.isJavaIdentifierStart( ch )) {" );
+    out.println( "      return LETTER;" );
+    out.println( "    }" );
+    out.println( "    return Character.isJavaIdentifierPart( ch ) ? PART : OTHER;" );
+    out.println( "  }" );
+    out.println( " " );
+    out.println( "  /**" );
+    out.println( "   *  @return the state after state on ch or -1 if there is none" );
+    out.println( "   */" );
+    out.println( "  static int next( int state, int ch ) {" );
+    out.println( "    return TRANSITIONS[ state * CLASSES + classOf( ch ) ];" );
+    out.println( "  }" );
+    out.println( "}" );
+  }
+}
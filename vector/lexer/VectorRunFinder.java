@@ -0,0 +1,64 @@
+package lexer;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ *  A RunFinder that classes a whole vector of chars per step with the
+ *  Vector API, 16 chars (32 bytes) on AVX2 and 32 on AVX-512, and uses
+ *  the scalar one for the chars left over at the end of the line.  It
+ *  needs the incubating jdk.incubator.vector module, both to compile
+ *  and to run, so it is kept out of the lexer directory in a source root
+ *  of its own, which is compiled with the module into the same output
+ *  after the rest:
+ *  <pre>
+ *  javac -d out $(find lexer -name '*.java')
+ *  javac --add-modules jdk.incubator.vector -cp out -d out vector/lexer/VectorRunFinder.java
+ *  java --add-modules jdk.incubator.vector -cp out lexer.Lexer -vector file.x
+ *  </pre>
+ *  Without it RunFinder.vector() returns null and nothing else in the
+ *  lexer refers to this class.
+ */
+final class VectorRunFinder implements RunFinder {
+  private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+  @Override
+  public int runEnd( int runClass, char[] chars, int from, int to ) {
+    int i = from, step = SPECIES.length();
+
+    for( ; i + step <= to; i += step ) {
+      ShortVector v = ShortVector.fromCharArray( SPECIES, chars, i );
+      VectorMask<Short> outside = inClass( runClass, v ).not();
+
+      if( outside.anyTrue() ) {
+        return i + outside.firstTrue();
+      }
+    }
+
+    return RunFinder.scalarRunEnd( runClass, chars, i, to );
+  }
+
+  /**
+   *  @return the lanes of v holding an ASCII char of runClass; chars
+   *  from 0x8000 up are negative shorts, so they are in no range
+   */
+  private static VectorMask<Short> inClass( int runClass, ShortVector v ) {
+    switch( runClass ) {
+      case WHITESPACE:
+        return v.eq( (short) ' ' ).or( between( v, 0x09, 0x0d )).or( between( v, 0x1c, 0x1f ));
+      case IDENTIFIER_PART:
+        // letters, digits, _ and $ and the chars Java ignores in identifiers
+        return between( v, 'a', 'z' ).or( between( v, 'A', 'Z' )).or( between( v, '0', '9' ))
+            .or( v.eq( (short) '_' )).or( v.eq( (short) '$' ))
+            .or( between( v, 0x00, 0x08 )).or( between( v, 0x0e, 0x1b )).or( v.eq( (short) 0x7f ));
+      default:
+        return between( v, '0', '9' );
+    }
+  }
+
+  private static VectorMask<Short> between( ShortVector v, int low, int high ) {
+    return v.compare( VectorOperators.GE, (short) low ).and( v.compare( VectorOperators.LE, (short) high ));
+  }
+}